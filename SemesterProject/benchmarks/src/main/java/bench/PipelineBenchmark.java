@@ -0,0 +1,137 @@
+package bench;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import generator.IntermediateCodeGenerator;
+import lexer.Lexer;
+import lexer.Token;
+import output.DiscardLayout;
+import output.OutputLayout;
+import parser.CompactParseTree;
+import parser.ParseTree;
+import parser.Parser;
+import semantic.SemanticAnalyzer;
+import semantic.TableEntry;
+import util.Trace;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Per-phase and end-to-end throughput for every workload. Each phase starts from the
+ * previous phase's output, prepared once per trial, so it only measures its own work.
+ * Outputs go to a DiscardLayout, so disk speed does not count.
+ *
+ *   java -jar benchmarks/target/benchmarks.jar -prof gc
+ *   java -jar benchmarks/target/benchmarks.jar PipelineBenchmark.endToEnd -p workload=functions:10,functions:100,functions:1000
+ *
+ * The synthetic workloads come in growing sizes so their results plot as scaling curves;
+ * -prof gc adds the allocation rate (gc.alloc.rate.norm is bytes per operation).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PipelineBenchmark {
+    private static final OutputLayout DISCARD = new DiscardLayout();
+
+    @Param({ "allTest", "basic", "branching", "global", "printAssign", "RecursiveCalls", "simple",
+            "functions:10", "functions:100", "functions:1000",
+            "nesting:10", "nesting:50", "nesting:200",
+            "instructions:100", "instructions:1000", "instructions:10000",
+            "random:10000", "random:100000", "random:1000000" })
+    public String workload;
+
+    private String source;
+    private List<Token> tokens;
+    private ParseTree parseTree;
+    private CompactParseTree compactTree;
+    private List<TableEntry> symbolTable;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Trace.setLevel(Trace.Level.QUIET);
+        source = Workloads.load(workload);
+        tokens = lex();
+        Parser parser = parse();
+        if (!parser.isAccepted()) {
+            throw new IllegalStateException(workload + " does not parse");
+        }
+        parseTree = parser.getParseTree();
+        compactTree = parseCompact().getCompactParseTree();
+        symbolTable = analyze();
+    }
+
+    @Benchmark
+    public List<Token> lex() {
+        return new Lexer(new StringReader(source), null).getTokens();
+    }
+
+    @Benchmark
+    public Parser parse() throws IOException {
+        Parser parser = new Parser();
+        parser.setOutputLayout(DISCARD, workload);
+        parser.setTokens(tokens);
+        parser.parseTokens();
+        return parser;
+    }
+
+    // parse() building the struct-of-arrays tree instead of node objects
+    @Benchmark
+    public Parser parseCompact() throws IOException {
+        Parser parser = new Parser();
+        parser.setOutputLayout(DISCARD, workload);
+        parser.useCompactTree();
+        parser.setTokens(tokens);
+        parser.parseTokens();
+        return parser;
+    }
+
+    @Benchmark
+    public List<TableEntry> analyze() {
+        SemanticAnalyzer analyzer = new SemanticAnalyzer(parseTree);
+        analyzer.analyze();
+        return analyzer.getSymbolTable();
+    }
+
+    // analyze() over the struct-of-arrays tree
+    @Benchmark
+    public List<TableEntry> analyzeCompact() {
+        SemanticAnalyzer analyzer = new SemanticAnalyzer(compactTree);
+        analyzer.analyze();
+        return analyzer.getSymbolTable();
+    }
+
+    @Benchmark
+    public List<String> generate() {
+        return new IntermediateCodeGenerator(symbolTable).generateIntermediateCode();
+    }
+
+    // What Main does for one file, with lexing and parsing interleaved
+    @Benchmark
+    public List<TableEntry> endToEnd() throws IOException {
+        Parser parser = new Parser();
+        parser.setOutputLayout(DISCARD, workload);
+        parser.parseTokens(new Lexer(new StringReader(source), null));
+        SemanticAnalyzer analyzer = new SemanticAnalyzer(parser.getTree());
+        analyzer.analyze();
+        IntermediateCodeGenerator icg = new IntermediateCodeGenerator(analyzer.getSymbolTable());
+        icg.writeIntermediateCode(DISCARD, workload);
+        return analyzer.getSymbolTable();
+    }
+}
@@ -0,0 +1,74 @@
+package bench;
+
+// Scaled-up SPL programs of a fixed shape, for scaling curves beyond the txt/ samples
+final class SyntheticPrograms {
+    private static final String LOCVARS = "    num V_a, num V_b, text V_c,\n";
+
+    private SyntheticPrograms() {
+    }
+
+    // count top-level functions, each with a short body
+    static String manyFunctions(int count) {
+        StringBuilder out = new StringBuilder("main\n    num V_x, num V_y,\nbegin\n    V_x < input;\n    F_f0(V_x, V_y, 1);\nend\n");
+        for (int i = 0; i < count; i++) {
+            out.append("num F_f").append(i).append("(V_p, V_q, V_r)\n{\n").append(LOCVARS)
+                    .append("begin\n    V_a = add(V_p, V_q);\n    print V_a;\n    return V_a;\nend\n}\nend\n");
+        }
+        return out.toString();
+    }
+
+    // depth branches nested inside each other, plus functions nested depth / 10 deep through SUBFUNCS
+    static String deepNesting(int depth) {
+        StringBuilder out = new StringBuilder("main\n    num V_x, num V_y,\nbegin\n");
+        appendBranches(out, depth);
+        out.append("end\n");
+        int functions = Math.max(1, depth / 10);
+        for (int i = 0; i < functions; i++) {
+            out.append("num F_g").append(i).append("(V_p, V_q, V_r)\n{\n").append(LOCVARS)
+                    .append("begin\n    print V_p;\nend\n}\n");
+        }
+        for (int i = 0; i < functions; i++) {
+            out.append("end\n");
+        }
+        return out.toString();
+    }
+
+    private static void appendBranches(StringBuilder out, int depth) {
+        for (int i = 0; i < depth; i++) {
+            out.append("if grt(V_x, ").append(i).append(") then\nbegin\n");
+        }
+        out.append("print V_x;\n");
+        for (int i = 0; i < depth; i++) {
+            out.append("end\nelse\nbegin\nskip;\nend;\n");
+        }
+    }
+
+    // One main algorithm with count instructions of every kind
+    static String longInstructionList(int count) {
+        StringBuilder out = new StringBuilder("main\n    num V_x, num V_y, text V_s,\nbegin\n");
+        for (int i = 0; i < count; i++) {
+            switch (i % 6) {
+                case 0:
+                    out.append("    V_x < input;\n");
+                    break;
+                case 1:
+                    out.append("    V_y = mul(V_x, ").append(i).append(");\n");
+                    break;
+                case 2:
+                    out.append("    V_s = \"Text\";\n");
+                    break;
+                case 3:
+                    out.append("    print V_y;\n");
+                    break;
+                case 4:
+                    out.append("    F_h(V_x, V_y, ").append(i).append(");\n");
+                    break;
+                default:
+                    out.append("    skip;\n");
+                    break;
+            }
+        }
+        out.append("end\nnum F_h(V_p, V_q, V_r)\n{\n").append(LOCVARS).append("begin\n    return V_p;\nend\n}\nend\n");
+        return out.toString();
+    }
+}
@@ -0,0 +1,61 @@
+package bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import parser.ProgramGenerator;
+
+// Resolves a benchmark workload name to SPL source text
+final class Workloads {
+    private static final long RANDOM_SEED = 341;
+
+    private Workloads() {
+    }
+
+    /**
+     * "allTest" reads txt/allTest.txt; "functions:N", "nesting:N" and "instructions:N"
+     * build a synthetic program of that size, and "random:N" a random program of about
+     * N characters from ProgramGenerator with a fixed seed. The txt/ folder is looked up in the
+     * spl.home system property, then the working directory and its parent.
+     */
+    static String load(String workload) throws IOException {
+        int colon = workload.indexOf(':');
+        if (colon < 0) {
+            return Files.readString(findSample(workload).toPath());
+        }
+
+        String shape = workload.substring(0, colon);
+        int size = Integer.parseInt(workload.substring(colon + 1));
+        switch (shape) {
+            case "functions":
+                return SyntheticPrograms.manyFunctions(size);
+            case "nesting":
+                return SyntheticPrograms.deepNesting(size);
+            case "instructions":
+                return SyntheticPrograms.longInstructionList(size);
+            case "random": {
+                ProgramGenerator generator = new ProgramGenerator(RANDOM_SEED);
+                generator.setSize(size);
+                generator.setSubfuncDepth(2);
+                generator.setGlobalVariables(10);
+                return generator.generate();
+            }
+            default:
+                throw new IllegalArgumentException("Unknown workload shape: " + shape);
+        }
+    }
+
+    private static File findSample(String name) throws IOException {
+        String[] homes = { System.getProperty("spl.home"), ".", ".." };
+        for (String home : homes) {
+            if (home != null) {
+                File sample = new File(new File(home, "txt"), name + ".txt");
+                if (sample.isFile()) {
+                    return sample;
+                }
+            }
+        }
+        throw new IOException("txt/" + name + ".txt not found; run from SemesterProject or set -Dspl.home");
+    }
+}
@@ -2,11 +2,13 @@ package generator;
 
 import org.w3c.dom.*;
 import javax.xml.parsers.*;
-import javax.xml.xpath.XPath;
-import javax.xml.xpath.XPathConstants;
-import javax.xml.xpath.XPathExpressionException;
-import javax.xml.xpath.XPathFactory;
 import java.io.*;
+import java.util.HashMap;
+import java.util.Map;
+
+import parser.ParseTreeBinaryReader;
+import parser.ParseTreeView;
+import util.Trace;
 
 public class CodeGenerator {
 
@@ -14,6 +16,7 @@ public class CodeGenerator {
     private FileWriter writer ;
     private Document doc;
     private Node start;
+    private Map<String, Element> nodesByUnid; // IN and LEAF elements, indexed once when the XML is loaded
     public CodeGenerator() {
         this.basicCode = new StringBuilder();
     }
@@ -27,6 +30,7 @@ public class CodeGenerator {
             DocumentBuilder dBuilder = dbFactory.newDocumentBuilder();
             doc = dBuilder.parse(inputFile);
             doc.getDocumentElement().normalize();
+            indexNodes();
             writer = new FileWriter(outputFilePath);
             start = doc.getElementsByTagName("SYNTREE").item(0);
             // Process the root of the syntax tree
@@ -35,71 +39,114 @@ public class CodeGenerator {
 
             // Write the generated BASIC code to output file
             writeToFile(outputFilePath);
-            System.out.println("BASIC code generated and written to " + outputFilePath);
+            Trace.summary("BASIC code generated and written to " + outputFilePath);
+
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    // Same as generateCodeFromXML, from a tree saved with ParseTree.writeToBinary
+    public void generateCodeFromBinary(String binaryFilePath, String outputFilePath) {
+        try {
+            generateCode(ParseTreeBinaryReader.read(binaryFilePath), outputFilePath);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // Same as generateCodeFromXML, but straight from the parser's tree (either kind) without the XML round trip
+    public void generateCode(ParseTreeView tree, String outputFilePath) {
+        try {
+            writer = new FileWriter(outputFilePath);
+            processTreeNode(tree, tree.getRootId());
+
+            // Write the generated BASIC code to output file
+            writeToFile(outputFilePath);
+            Trace.summary("BASIC code generated and written to " + outputFilePath);
 
         } catch (Exception e) {
             e.printStackTrace();
         }
     }
 
-    // Recursively process each node in the syntax tree and generate BASIC code
-    private void processNode(Node node) throws XPathExpressionException, IOException {
-        if (node.getNodeType() == Node.ELEMENT_NODE) {
+    // Process each node in the syntax tree and generate BASIC code, then move on to the first child
+    // listed under CHILDREN. Leaves have no SYMB and end the walk.
+    private void processNode(Node node) throws IOException {
+        while (node != null && node.getNodeType() == Node.ELEMENT_NODE) {
             Element element = (Element) node;
-            String symbol = element.getElementsByTagName("SYMB").item(0).getTextContent();
-
-            // Check symbol and generate appropriate BASIC code
-            switch (symbol) {
-                case "PROG":
-                    processProg(node);
-                    break;
-                case "GLOBVARS":
-                    processGlobalVars(node);
-                    break;
-                case "INSTRUC":
-                    processInstructions(node);
-                    break;
-                case "COMMAND":
-                    processCommand(node);
-                    break;
-                case "ASSIGN":
-                    processAssignment(node);
-                    break;
-                case "CALL":
-                    processFunctionCall(node);
-                    break;
-                case "ALGO":
-                    processAlgorithm(node);
-                    break;
-                default:
-                    // Handle other symbols or unknown cases
-                    break;
+            Node symbolNode = element.getElementsByTagName("SYMB").item(0);
+            if (symbolNode == null) {
+                return;
             }
-
-            // Process the children of this node recursively
-            NodeList children = element.getElementsByTagName("CHILDREN");
-            for (int i = 0; i < children.getLength(); i++) {
-                Node child = children.item(i);
-                if (node.getNodeType() == Node.ELEMENT_NODE) {
-                    Element temp = (Element) child;
-                    String unid = temp.getElementsByTagName("ID").item(0).getTextContent();
-                    Node target = findNodeByUNID(unid);
-                    System.out.println("UNID: " + unid);
-                    processNode(target);
+            processSymbol(symbolNode.getTextContent());
+
+            // Process the first child of this node
+            Node target = null;
+            Node children = element.getElementsByTagName("CHILDREN").item(0);
+            if (children != null) {
+                Node id = ((Element) children).getElementsByTagName("ID").item(0);
+                if (id != null) {
+                    String unid = id.getTextContent();
+                    target = findNodeByUNID(unid);
+                    Trace.trace("UNID: " + unid);
                 }
+            }
+            node = target;
+        }
+    }
+
+    // The in-memory counterpart of processNode; children are stored in the order CHILDREN lists them
+    private void processTreeNode(ParseTreeView tree, int node) throws IOException {
+        while (!tree.isLeaf(node)) {
+            processSymbol(tree.getSymbol(node));
 
+            if (tree.getChildCount(node) == 0) {
+                return;
             }
+            node = tree.getChildId(node, 0);
+            Trace.trace("UNID: " + node);
+        }
+    }
+
+    // Check symbol and generate appropriate BASIC code
+    private void processSymbol(String symbol) throws IOException {
+        switch (symbol) {
+            case "PROG":
+                processProg();
+                break;
+            case "GLOBVARS":
+                processGlobalVars();
+                break;
+            case "INSTRUC":
+                processInstructions();
+                break;
+            case "COMMAND":
+                processCommand();
+                break;
+            case "ASSIGN":
+                processAssignment();
+                break;
+            case "CALL":
+                processFunctionCall();
+                break;
+            case "ALGO":
+                processAlgorithm();
+                break;
+            default:
+                // Handle other symbols or unknown cases
+                break;
         }
     }
 
     // Method to handle the "PROG" symbol
-    private void processProg(Node node) throws IOException {
+    private void processProg() throws IOException {
         // Assuming PROG is the starting point for BASIC programs
         writer.write("wqrwefgewrg");
     }
 
     // Method to handle "GLOBVARS" for global variable declarations
-    private void processGlobalVars(Node node) {
+    private void processGlobalVars() {
         // Translate global variable declarations
         basicCode.append("' Global variables\n");
         // Example of how to process: Add corresponding code for global variables
@@ -107,32 +154,32 @@ public class CodeGenerator {
     }
 
     // Method to handle "ALGO" for algorithms
-    private void processAlgorithm(Node node) {
+    private void processAlgorithm() {
         basicCode.append("' Algorithm section\n");
         // Translate algorithm-related code
     }
 
     // Method to handle "INSTRUC" for instructions
-    private void processInstructions(Node node) {
+    private void processInstructions() {
         basicCode.append("' Instructions section\n");
     }
 
     // Method to handle "COMMAND" for commands
-    private void processCommand(Node node) {
+    private void processCommand() {
         // Example of processing a command (could be printing or other actions)
         basicCode.append("' Command processing\n");
         // Example: basicCode.append("PRINT \"Hello\"\n");
     }
 
     // Method to handle assignments
-    private void processAssignment(Node node) {
+    private void processAssignment() {
         basicCode.append("' Assignment operation\n");
         // Example of assignment: variable = expression
         // basicCode.append("LET varName = value\n");
     }
 
     // Method to handle function calls
-    private void processFunctionCall(Node node) {
+    private void processFunctionCall() {
         basicCode.append("' Function call\n");
         // Translate function call syntax
     }
@@ -146,25 +193,54 @@ public class CodeGenerator {
         }
     }
 
-    // Recursively search for a node by its unid attribute
-    private Node findNodeByUNID(String unid) throws XPathExpressionException {
-        XPathFactory xPathFactory = XPathFactory.newInstance();
-        XPath xpath = xPathFactory.newXPath();
-
-        String expression = String.format("//IN[UNID='%s']", unid);
-        NodeList nodeList = (NodeList) xpath.evaluate(expression, doc, XPathConstants.NODESET);
-        if(nodeList.getLength() == 0){
-            expression = String.format("//LEAF[UNID='%s']", unid);
-            nodeList = (NodeList) xpath.evaluate(expression, doc, XPathConstants.NODESET);
+    // One walk over the document; an IN wins over a LEAF with the same UNID, as the old //IN then //LEAF
+    // search did. getElementsByTagName is avoided here because its lists rescan the document while the
+    // deferred DOM is still expanding nodes.
+    private void indexNodes() {
+        nodesByUnid = new HashMap<>();
+        Map<String, Element> leavesByUnid = new HashMap<>();
+        Node node = doc.getDocumentElement();
+        while (node != null) {
+            if (node.getNodeType() == Node.ELEMENT_NODE) {
+                String tag = node.getNodeName();
+                if (tag.equals("IN") || tag.equals("LEAF")) {
+                    String unid = childText(node, "UNID");
+                    if (unid != null) {
+                        (tag.equals("IN") ? nodesByUnid : leavesByUnid).putIfAbsent(unid, (Element) node);
+                    }
+                }
+            }
+            // Next node in document order
+            if (node.getFirstChild() != null) {
+                node = node.getFirstChild();
+            } else {
+                while (node != null && node.getNextSibling() == null) {
+                    node = node.getParentNode();
+                }
+                node = node != null ? node.getNextSibling() : null;
+            }
+        }
+        for (Map.Entry<String, Element> leaf : leavesByUnid.entrySet()) {
+            nodesByUnid.putIfAbsent(leaf.getKey(), leaf.getValue());
         }
+    }
 
-        // Print the results
-        for (int i = 0; i < nodeList.getLength(); i++) {
-            Node node = nodeList.item(i);
-            System.out.println("Node found with UNID: " + unid);
-            return node;
+    // Text of the first direct child element called tag, or null
+    private static String childText(Node node, String tag) {
+        for (Node child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (child.getNodeType() == Node.ELEMENT_NODE && child.getNodeName().equals(tag)) {
+                return child.getTextContent();
+            }
         }
+        return null;
+    }
 
-        return null; // Return null if no node with matching unid is found
+    // Node with the given UNID, or null if there is none
+    private Node findNodeByUNID(String unid) {
+        Element node = nodesByUnid.get(unid);
+        if (node != null) {
+            Trace.trace("Node found with UNID: " + unid);
+        }
+        return node;
     }
 }
@@ -1,11 +1,15 @@
 package generator;
 
 import semantic.TableEntry;
+import output.Artifact;
+import output.OutputLayout;
+import util.Trace;
 
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -50,26 +54,44 @@ public class IntermediateCodeGenerator {
         return code.toString();
     }
 
-    // Write intermediate code to a file
+    // Write intermediate code to intermediate/intermediate.txt
     public void writeIntermediateCodeToFile() {
+        writeIntermediateCodeToFile(new File("intermediate", "intermediate.txt"));
+    }
+
+    // Write intermediate code to the given file, creating its folder if needed
+    public void writeIntermediateCodeToFile(File file) {
         List<String> intermediateCode = generateIntermediateCode();
-        File folder = new File("intermediate");
+        File folder = file.getAbsoluteFile().getParentFile();
         if (!folder.exists()) {
-            folder.mkdir(); // Create the folder if it doesn't exist
+            folder.mkdirs(); // Create the folder if it doesn't exist
         }
 
-        File file = new File(folder, "intermediate.txt");
         try (BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
             for (String line : intermediateCode) {
                 writer.write(line);
                 writer.newLine();
             }
-            System.out.println("Intermediate code successfully written to " + file.getAbsolutePath());
+            Trace.summary("Intermediate code successfully written to " + file.getAbsolutePath());
         } catch (IOException e) {
             System.err.println("Error writing intermediate code to file: " + e.getMessage());
         }
     }
 
+    // Write intermediate code for inputName through the output layout; a failed write is the caller's to report
+    public void writeIntermediateCode(OutputLayout layout, String inputName) throws IOException {
+        List<String> intermediateCode = generateIntermediateCode();
+        try (Writer writer = layout.open(inputName, Artifact.INTERMEDIATE)) {
+            for (String line : intermediateCode) {
+                writer.write(line);
+                writer.write(System.lineSeparator());
+            }
+        } catch (IOException e) {
+            throw new IOException("Error writing intermediate code to file: " + e.getMessage(), e);
+        }
+        Trace.summary("Intermediate code successfully written to " + layout.describe(inputName, Artifact.INTERMEDIATE));
+    }
+
     // Optional: Display the generated intermediate code in the console
     public void displayIntermediateCode() {
         List<String> intermediateCode = generateIntermediateCode();
@@ -0,0 +1,66 @@
+package lexer;
+
+/**
+ * Per-lexer pool of identifier and literal lexemes. A name that occurs a thousand times
+ * in a program becomes one String, and repeats are found without copying them out of
+ * the input first. Keywords and punctuation never get here; the scanner already shares
+ * one String per keyword.
+ */
+final class LexemePool {
+    private String[] table = new String[256]; // open addressing, length is a power of two
+    private int size;
+
+    // The pooled String equal to input[start, start + length)
+    String intern(CharSequence input, int start, int length) {
+        int hash = 0;
+        for (int i = start; i < start + length; i++) {
+            hash = 31 * hash + input.charAt(i); // String.hashCode, so a pooled String's cached hash matches
+        }
+        int mask = table.length - 1;
+        for (int slot = spread(hash) & mask;; slot = (slot + 1) & mask) {
+            String lexeme = table[slot];
+            if (lexeme == null) {
+                lexeme = input.subSequence(start, start + length).toString();
+                table[slot] = lexeme;
+                if (++size * 2 > table.length) {
+                    grow();
+                }
+                return lexeme;
+            }
+            if (lexeme.hashCode() == hash && matches(lexeme, input, start, length)) {
+                return lexeme;
+            }
+        }
+    }
+
+    private static boolean matches(String lexeme, CharSequence input, int start, int length) {
+        if (lexeme.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (lexeme.charAt(i) != input.charAt(start + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void grow() {
+        String[] old = table;
+        table = new String[old.length * 2];
+        int mask = table.length - 1;
+        for (String lexeme : old) {
+            if (lexeme != null) {
+                int slot = spread(lexeme.hashCode()) & mask;
+                while (table[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                table[slot] = lexeme;
+            }
+        }
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -2,32 +2,77 @@ package lexer;
 
 import java.io.*;
 import java.util.*;
-import java.util.regex.*;
 
-public class Lexer {
+public class Lexer implements TokenSource {
+    private static final TokenScanner SCANNER = TokenScanner.getInstance();
+
     private String input;
     private int pos;
-    private FileWriter xmlWriter;
+    private TokenXmlWriter xmlWriter;
     private List<Token> tokens;
-    private int tokenId; // Token ID counter
+    private final LexemePool lexemes = new LexemePool(); // repeated names and literals share one String
+
+    // Tokens are produced lazily, one per nextToken() call
+    public Lexer(String inputFilePath) {
+        this(inputFilePath, (Writer) null);
+    }
 
+    // Also writes each token to outputXmlPath as it is produced, unless the path is null
     public Lexer(String inputFilePath, String outputXmlPath) {
-        this.input = readFile(inputFilePath);
+        this(inputFilePath, openXmlFile(outputXmlPath));
+    }
+
+    // Also writes each token to xmlWriter as it is produced, unless it is null; closes it at EOF
+    public Lexer(String inputFilePath, Writer xmlWriter) {
+        this(openFile(inputFilePath), xmlWriter);
+    }
+
+    // Lexes a program that is not in a file, e.g. one held in memory by a benchmark
+    public Lexer(Reader source, Writer xmlWriter) {
+        this.input = readInput(source);
         this.pos = 0;
-        this.tokens = new ArrayList<>();
-        this.tokenId = 1; // Initialize token ID counter
+        if (xmlWriter != null) {
+            try {
+                this.xmlWriter = new TokenXmlWriter(xmlWriter);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private static Writer openXmlFile(String outputXmlPath) {
+        if (outputXmlPath == null) {
+            return null;
+        }
+        try {
+            return new FileWriter(outputXmlPath);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    // Tokenizes whatever has not been read through nextToken() yet
+    public List<Token> getTokens() {
+        if (tokens == null) {
+            tokens = new ArrayList<>();
+            tokenizeInput();
+        }
+        return tokens;
+    }
+
+    private static Reader openFile(String fileName) {
         try {
-            this.xmlWriter = new FileWriter(outputXmlPath);
-            writeXmlHeader();
+            return new FileReader(fileName);
         } catch (IOException e) {
             e.printStackTrace();
+            return new StringReader("");
         }
-        tokenizeInput(); // Tokenize input from the file
     }
 
-    private String readFile(String fileName) {
+    private static String readInput(Reader source) {
         StringBuilder content = new StringBuilder();
-        try (BufferedReader br = new BufferedReader(new FileReader(fileName))) {
+        try (BufferedReader br = new BufferedReader(source)) {
             String line;
             while ((line = br.readLine()) != null) {
                 content.append(line).append("\n");
@@ -43,12 +88,29 @@ public class Lexer {
         do {
             token = nextToken();
             tokens.add(token);
-            writeTokenToXml(token); // Write token to the XML file
         } while (token.getType() != Token.TokenType.EOF);
-        closeXmlFile();
     }
 
+    @Override
     public Token nextToken() {
+        Token token;
+        try {
+            token = scanToken();
+        } catch (RuntimeException e) {
+            flushXmlFile(); // keep the tokens read before the error
+            throw e;
+        }
+        if (xmlWriter != null) {
+            writeTokenToXml(token); // Write token to the XML file
+            if (token.getType() == Token.TokenType.EOF) {
+                closeXmlFile();
+                xmlWriter = null;
+            }
+        }
+        return token;
+    }
+
+    private Token scanToken() {
         if (pos >= input.length()) {
             return new Token(Token.TokenType.EOF, "$"); // EOF token
         }
@@ -58,20 +120,11 @@ public class Lexer {
             pos++;
         }
 
-        // Iterate over all defined token types and match using regex
-        for (Token.TokenType type : Token.TokenType.values()) {
-            if (type == Token.TokenType.EOF) {
-                continue; // Skip EOF token
-            }
-
-            Pattern pattern = Pattern.compile("^" + type.getPattern());
-            Matcher matcher = pattern.matcher(input.substring(pos));
-
-            if (matcher.find()) {
-                String tokenValue = matcher.group();
-                pos += tokenValue.length(); // move position to end of token
-                return new Token(type, tokenValue); // Return matched token
-            }
+        // Longest match over all token types in a single pass, without copying the input
+        Token token = SCANNER.scan(input, pos, lexemes);
+        if (token != null) {
+            pos += token.getValue().length(); // move position to end of token
+            return token;
         }
 
         System.err.println("Unrecognized token at position: " + pos);
@@ -79,106 +132,31 @@ public class Lexer {
         throw new RuntimeException("Unrecognized token at position: " + pos);
     }
 
-    // Helper method to write the XML header
-    private void writeXmlHeader() {
-        try {
-            xmlWriter.write("<TOKENSTREAM>\n");
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-    }
-
     // Helper method to write a single token to the XML file
     private void writeTokenToXml(Token token) {
         try {
-            String tokenClass = mapTokenClass(token.getType());
-            String tokenValue = token.getValue()
-                    .replace("&", "&amp;") // Escape &
-                    .replace("<", "&lt;") // Escape <
-                    .replace(">", "&gt;"); // Escape >
-            xmlWriter.write("\t<TOK>\n");
-            xmlWriter.write("\t\t<ID>" + tokenId++ + "</ID>\n"); // Increment token ID
-            xmlWriter.write("\t\t<CLASS>" + tokenClass + "</CLASS>\n");
-            xmlWriter.write("\t\t<WORD>" + tokenValue + "</WORD>\n");
-            xmlWriter.write("\t</TOK>\n");
+            xmlWriter.write(token);
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
 
-    // Map token types to their respective classes for XML output
-    private String mapTokenClass(Token.TokenType type) {
-        switch (type) {
-            case MAIN:
-                return "MAIN";
-            case BEGIN:
-                return "BEGIN";
-            case END:
-                return "END";
-            case SKIP:
-                return "SKIP";
-            case HALT:
-                return "HALT";
-            case IF:
-                return "IF";
-            case THEN:
-                return "THEN";
-            case ELSE:
-                return "ELSE";
-            case PRINT:
-                return "PRINT";
-            case RETURN:
-                return "RETURN";
-            case N:
-                return "N";
-            case T:
-                return "T";
-            case VOID:
-                return "VOID";
-            case INPUT:
-                return "INPUT";
-            case V:
-                return "V"; // User-defined variable names
-            case F:
-                return "F"; // User-defined function names
-            case STRING:
-                return "STRING"; // Strings
-            case NUMBER:
-                return "NUMBER"; // Numbers
-            case ASSIGNMENT:
-                return "ASSIGNMENT";
-            case INPUT_OPERATOR:
-                return "INPUT_OPERATOR"; // Recognize '<' for input
-            case BINOP:
-                return "BINOP";
-            case UNOP:
-                return "UNOP";
-            case LPAREN:
-                return "LPAREN";
-            case RPAREN:
-                return "RPAREN";
-            case COMMA:
-                return "comma";
-            case SEMICOLON:
-                return "semicolon";
-            case PROLOG:
-                return "prolog";
-            case EPILOG:
-                return "epilog";
-            case EOF:
-                return "EOF";
-            default:
-                throw new IllegalArgumentException("Unknown token type: " + type);
+    private void flushXmlFile() {
+        if (xmlWriter != null) {
+            try {
+                xmlWriter.flush();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
         }
     }
 
     // Helper method to close XML file
     private void closeXmlFile() {
         try {
-            xmlWriter.write("</TOKENSTREAM>\n");
             xmlWriter.close();
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
-}
\ No newline at end of file
+}
@@ -78,10 +78,17 @@ public class Token {
 
     private final TokenType type;
     private final String value;
+    private final int lexemeId;
 
     public Token(TokenType type, String value) {
+        this(type, value, -1);
+    }
+
+    // lexemeId is the value's TokenScanner lexeme id, or -1 for names, literals and unknown words
+    public Token(TokenType type, String value, int lexemeId) {
         this.type = type;
         this.value = value;
+        this.lexemeId = lexemeId;
     }
 
     public TokenType getType() {
@@ -92,6 +99,10 @@ public class Token {
         return value;
     }
 
+    public int getLexemeId() {
+        return lexemeId;
+    }
+
     @Override
     public String toString() {
         return String.format("Token(%s, %s)", type, value);
@@ -0,0 +1,312 @@
+package lexer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Table-driven scanner built once per JVM from the {@link Token.TokenType} patterns.
+ *
+ * Patterns that are plain words or symbols (keywords, operators, punctuation) are
+ * compiled into a single character trie. The open lexical classes (V, F, STRING,
+ * NUMBER) are matched by small hand-written loops that follow their regexes.
+ * Input is scanned in place; the longest match wins and ties go to the type that
+ * is declared first in the enum, which is the order the old regex loop tried them.
+ * Each trie word gets a small lexeme id that its tokens carry, so the parser can find
+ * a keyword's table column without hashing its value.
+ */
+public final class TokenScanner {
+    private static final TokenScanner INSTANCE = new TokenScanner();
+    private static final int ALPHABET = 128;
+
+    private final int[][] next; // trie transitions, -1 when there is no edge
+    private final Token.TokenType[] accept; // type accepted at each trie state, or null
+    private final int[] lexemeId; // lexeme id of each accepting state, -1 elsewhere
+    private final String[] lexemes; // shared value string by lexeme id
+    private final boolean[] needsBoundary; // accept only if no word character follows
+    private final Token.TokenType[] classTypes; // types matched by hand-written loops
+
+    private TokenScanner() {
+        List<int[]> states = new ArrayList<>();
+        List<Token.TokenType> accepts = new ArrayList<>();
+        List<String> lexemes = new ArrayList<>();
+        List<Boolean> boundaries = new ArrayList<>();
+        List<Token.TokenType> classes = new ArrayList<>();
+        addState(states, accepts, lexemes, boundaries);
+
+        for (Token.TokenType type : Token.TokenType.values()) {
+            if (!type.isTerminal() || type.getPattern().isEmpty()) {
+                continue; // EOF and non-terminals never match input
+            }
+
+            String pattern = type.getPattern();
+            boolean boundary = false;
+            if (pattern.startsWith("\\b") && pattern.endsWith("\\b")) {
+                pattern = pattern.substring(2, pattern.length() - 2);
+                boundary = true;
+            }
+
+            List<String> words = literalAlternatives(pattern);
+            if (words == null) {
+                if (!isClassType(type)) {
+                    throw new IllegalStateException("No scanner rule for token pattern: " + type.getPattern());
+                }
+                classes.add(type);
+                continue;
+            }
+
+            for (String word : words) {
+                int state = 0;
+                for (int i = 0; i < word.length(); i++) {
+                    char c = word.charAt(i);
+                    if (states.get(state)[c] < 0) {
+                        states.get(state)[c] = states.size();
+                        addState(states, accepts, lexemes, boundaries);
+                    }
+                    state = states.get(state)[c];
+                }
+                // Keep the first type declared for a word, like the regex loop did
+                if (accepts.get(state) == null) {
+                    accepts.set(state, type);
+                    lexemes.set(state, word);
+                    boundaries.set(state, boundary);
+                }
+            }
+        }
+
+        this.next = states.toArray(new int[0][]);
+        this.accept = accepts.toArray(new Token.TokenType[0]);
+        this.lexemeId = new int[lexemes.size()];
+        List<String> words = new ArrayList<>();
+        for (int i = 0; i < lexemeId.length; i++) {
+            lexemeId[i] = lexemes.get(i) == null ? -1 : words.size();
+            if (lexemes.get(i) != null) {
+                words.add(lexemes.get(i));
+            }
+        }
+        this.lexemes = words.toArray(new String[0]);
+        this.needsBoundary = new boolean[boundaries.size()];
+        for (int i = 0; i < needsBoundary.length; i++) {
+            needsBoundary[i] = boundaries.get(i);
+        }
+        this.classTypes = classes.toArray(new Token.TokenType[0]);
+    }
+
+    public static TokenScanner getInstance() {
+        return INSTANCE;
+    }
+
+    // Number of lexeme ids; ids run from 0 to getLexemeCount() - 1
+    public int getLexemeCount() {
+        return lexemes.length;
+    }
+
+    public String getLexeme(int id) {
+        return lexemes[id];
+    }
+
+    // The lexeme id of a keyword, operator or punctuation word, or -1 if the trie has no such word
+    public int lexemeId(String word) {
+        int state = 0;
+        for (int i = 0; i < word.length(); i++) {
+            char c = word.charAt(i);
+            if (c >= ALPHABET || next[state][c] < 0) {
+                return -1;
+            }
+            state = next[state][c];
+        }
+        return lexemeId[state];
+    }
+
+    /**
+     * Matches one token starting at {@code pos}. Returns null if no token type matches.
+     */
+    public Token scan(CharSequence input, int pos) {
+        return scan(input, pos, null);
+    }
+
+    /**
+     * Like {@link #scan(CharSequence, int)}, taking the values of V, F, STRING and NUMBER
+     * tokens from lexemes when it is not null.
+     */
+    Token scan(CharSequence input, int pos, LexemePool lexemes) {
+        Token.TokenType bestType = null;
+        int bestLength = 0;
+        String bestValue = null;
+        int bestLexeme = -1;
+
+        // Walk the keyword trie as far as the input allows
+        int state = 0;
+        for (int i = pos; i < input.length(); i++) {
+            char c = input.charAt(i);
+            if (c >= ALPHABET || next[state][c] < 0) {
+                break;
+            }
+            state = next[state][c];
+            if (accept[state] != null && (!needsBoundary[state] || !isWordChar(input, i + 1))) {
+                bestType = accept[state];
+                bestLength = i + 1 - pos;
+                bestLexeme = lexemeId[state];
+                bestValue = this.lexemes[bestLexeme];
+            }
+        }
+
+        for (Token.TokenType type : classTypes) {
+            int length = matchClass(type, input, pos);
+            if (length > bestLength || (length > 0 && length == bestLength && type.ordinal() < bestType.ordinal())) {
+                bestType = type;
+                bestLength = length;
+                bestValue = null;
+                bestLexeme = -1;
+            }
+        }
+
+        if (bestType == null) {
+            return null;
+        }
+        if (bestValue == null) {
+            bestValue = lexemes != null ? lexemes.intern(input, pos, bestLength)
+                    : input.subSequence(pos, pos + bestLength).toString();
+        }
+        return new Token(bestType, bestValue, bestLexeme);
+    }
+
+    private static boolean isClassType(Token.TokenType type) {
+        switch (type) {
+            case V:
+            case F:
+            case STRING:
+            case NUMBER:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    // Returns the length of the match for a lexical class, or 0 if it does not match
+    private static int matchClass(Token.TokenType type, CharSequence input, int pos) {
+        switch (type) {
+            case V:
+                return matchName(input, pos, 'V'); // V_[a-z]([a-z]|[0-9])*
+            case F:
+                return matchName(input, pos, 'F'); // F_[a-z]([a-z]|[0-9])*
+            case STRING:
+                return matchString(input, pos); // "[A-Z][a-z]{0,7}"
+            case NUMBER:
+                return matchNumber(input, pos); // -?[0-9]+(\.[0-9]+)?
+            default:
+                return 0;
+        }
+    }
+
+    private static int matchName(CharSequence input, int pos, char prefix) {
+        int end = input.length();
+        if (pos + 2 >= end || input.charAt(pos) != prefix || input.charAt(pos + 1) != '_'
+                || !isLower(input.charAt(pos + 2))) {
+            return 0;
+        }
+        int i = pos + 3;
+        while (i < end && (isLower(input.charAt(i)) || isDigit(input.charAt(i)))) {
+            i++;
+        }
+        return i - pos;
+    }
+
+    private static int matchString(CharSequence input, int pos) {
+        int end = input.length();
+        if (pos + 2 >= end || input.charAt(pos) != '"') {
+            return 0;
+        }
+        char first = input.charAt(pos + 1);
+        if (first < 'A' || first > 'Z') {
+            return 0;
+        }
+        int i = pos + 2;
+        int limit = Math.min(end, i + 7);
+        while (i < limit && isLower(input.charAt(i))) {
+            i++;
+        }
+        if (i >= end || input.charAt(i) != '"') {
+            return 0;
+        }
+        return i + 1 - pos;
+    }
+
+    private static int matchNumber(CharSequence input, int pos) {
+        int end = input.length();
+        int i = pos;
+        if (i < end && input.charAt(i) == '-') {
+            i++;
+        }
+        int digitsStart = i;
+        while (i < end && isDigit(input.charAt(i))) {
+            i++;
+        }
+        if (i == digitsStart) {
+            return 0;
+        }
+        // The fraction is optional and only taken when a digit follows the dot
+        if (i + 1 < end && input.charAt(i) == '.' && isDigit(input.charAt(i + 1))) {
+            i += 2;
+            while (i < end && isDigit(input.charAt(i))) {
+                i++;
+            }
+        }
+        return i - pos;
+    }
+
+    // Splits a pattern like "(or|and)" or "\\(" into its literal words, or null if it is a real regex
+    private static List<String> literalAlternatives(String pattern) {
+        String body = pattern;
+        if (body.length() > 2 && body.startsWith("(") && body.endsWith(")")) {
+            body = body.substring(1, body.length() - 1);
+        }
+
+        List<String> words = new ArrayList<>();
+        for (String alternative : body.split("\\|", -1)) {
+            StringBuilder word = new StringBuilder();
+            for (int i = 0; i < alternative.length(); i++) {
+                char c = alternative.charAt(i);
+                if (c == '\\' && i + 1 < alternative.length() && !Character.isLetterOrDigit(alternative.charAt(i + 1))) {
+                    word.append(alternative.charAt(++i)); // escaped symbol such as \( or \{
+                } else if ("\\[]()?*+.{}|^$".indexOf(c) >= 0 || c >= ALPHABET) {
+                    return null;
+                } else {
+                    word.append(c);
+                }
+            }
+            if (word.length() == 0) {
+                return null;
+            }
+            words.add(word.toString());
+        }
+        return words;
+    }
+
+    private static void addState(List<int[]> states, List<Token.TokenType> accepts, List<String> lexemes,
+            List<Boolean> boundaries) {
+        int[] edges = new int[ALPHABET];
+        Arrays.fill(edges, -1);
+        states.add(edges);
+        accepts.add(null);
+        lexemes.add(null);
+        boundaries.add(false);
+    }
+
+    // Same characters as \w in java.util.regex
+    private static boolean isWordChar(CharSequence input, int i) {
+        if (i >= input.length()) {
+            return false;
+        }
+        char c = input.charAt(i);
+        return isLower(c) || (c >= 'A' && c <= 'Z') || isDigit(c) || c == '_';
+    }
+
+    private static boolean isLower(char c) {
+        return c >= 'a' && c <= 'z';
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
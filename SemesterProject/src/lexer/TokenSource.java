@@ -0,0 +1,10 @@
+package lexer;
+
+/**
+ * Pull-based supplier of tokens. The parser asks for the next token on each shift,
+ * so a lazy source such as {@link Lexer} only scans as far as the parser has read.
+ */
+public interface TokenSource {
+    // Returns the next token, or null once the source has run out
+    Token nextToken();
+}
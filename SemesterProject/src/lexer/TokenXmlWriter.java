@@ -0,0 +1,76 @@
+package lexer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+
+import output.XmlSink;
+
+/**
+ * Writes the TOKENSTREAM XML for a token stream through a buffered {@link XmlSink}.
+ */
+public class TokenXmlWriter implements Closeable {
+    private static final String[] CLASS_NAMES = classNames();
+
+    private final XmlSink out;
+    private int tokenId = 1; // Token ID counter
+
+    // Writes the opening TOKENSTREAM tag straight away
+    public TokenXmlWriter(Writer out) throws IOException {
+        this.out = new XmlSink(out);
+        this.out.append("<TOKENSTREAM>\n");
+    }
+
+    public void write(Token token) throws IOException {
+        String tokenClass = CLASS_NAMES[token.getType().ordinal()];
+        if (tokenClass == null) {
+            throw new IllegalArgumentException("Unknown token type: " + token.getType());
+        }
+        out.append("\t<TOK>\n\t\t<ID>");
+        out.appendInt(tokenId++);
+        out.append("</ID>\n\t\t<CLASS>");
+        out.append(tokenClass);
+        out.append("</CLASS>\n\t\t<WORD>");
+        out.appendEscaped(token.getValue());
+        out.append("</WORD>\n\t</TOK>\n");
+    }
+
+    // Hands everything written so far to the underlying writer
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    // Writes the closing TOKENSTREAM tag and closes the underlying writer
+    @Override
+    public void close() throws IOException {
+        out.append("</TOKENSTREAM>\n");
+        out.close();
+    }
+
+    // XML class names by TokenType ordinal; null for non-terminals, which never appear in a token stream
+    private static String[] classNames() {
+        String[] names = new String[Token.TokenType.values().length];
+        for (Token.TokenType type : Token.TokenType.values()) {
+            switch (type) {
+                case COMMA:
+                    names[type.ordinal()] = "comma";
+                    break;
+                case SEMICOLON:
+                    names[type.ordinal()] = "semicolon";
+                    break;
+                case PROLOG:
+                    names[type.ordinal()] = "prolog";
+                    break;
+                case EPILOG:
+                    names[type.ordinal()] = "epilog";
+                    break;
+                default:
+                    if (type.isTerminal()) {
+                        names[type.ordinal()] = type.name();
+                    }
+                    break;
+            }
+        }
+        return names;
+    }
+}
@@ -0,0 +1,92 @@
+package lexer;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Reads the TOKENSTREAM XML written by the Lexer one TOK element at a time with StAX,
+ * so memory use does not grow with the number of tokens. Tokens whose CLASS is not a
+ * TokenType are reported and skipped.
+ */
+public class XmlTokenSource implements TokenSource, Closeable {
+    private final Reader input;
+    private final XMLStreamReader reader;
+    private final TokenScanner scanner = TokenScanner.getInstance();
+
+    public XmlTokenSource(String xmlPath) throws IOException, XMLStreamException {
+        this(new BufferedReader(new FileReader(xmlPath)));
+    }
+
+    public XmlTokenSource(Reader input) throws XMLStreamException {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false); // token files never need one
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        this.input = input;
+        this.reader = factory.createXMLStreamReader(input);
+    }
+
+    @Override
+    public Token nextToken() {
+        try {
+            while (reader.hasNext()) {
+                if (reader.next() == XMLStreamConstants.START_ELEMENT && reader.getLocalName().equals("TOK")) {
+                    Token token = readToken();
+                    if (token != null) {
+                        return token;
+                    }
+                }
+            }
+            return null;
+        } catch (XMLStreamException e) {
+            throw new RuntimeException("Malformed token XML: " + e.getMessage(), e);
+        }
+    }
+
+    // Reads the children of the current TOK element; null if its class is unknown
+    private Token readToken() throws XMLStreamException {
+        String tokenClass = null;
+        String tokenValue = null;
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            String element = reader.getLocalName();
+            String text = reader.getElementText(); // TOK children only hold text
+            if (element.equals("CLASS")) {
+                tokenClass = text;
+            } else if (element.equals("WORD")) {
+                tokenValue = text;
+            }
+        }
+        if (tokenClass == null || tokenValue == null) {
+            throw new XMLStreamException("TOK without CLASS or WORD", reader.getLocation());
+        }
+
+        try {
+            Token.TokenType type = Token.TokenType.valueOf(tokenClass.toUpperCase());
+            // Keywords and symbols get the scanner's lexeme id and shared String, like lexed ones
+            int lexemeId = scanner.lexemeId(tokenValue);
+            return new Token(type, lexemeId < 0 ? tokenValue : scanner.getLexeme(lexemeId), lexemeId);
+        } catch (IllegalArgumentException e) {
+            // Handle case where the token class in XML doesn't match the enum values
+            System.err.println("Unknown token class: " + tokenClass);
+            return null;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            reader.close();
+        } catch (XMLStreamException e) {
+            throw new IOException(e);
+        } finally {
+            input.close();
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package main;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+import generator.IntermediateCodeGenerator;
+import lexer.Lexer;
+import lexer.Token;
+import lexer.TokenSource;
+import metrics.CompileMetrics;
+import metrics.Counter;
+import metrics.MetricsFormat;
+import metrics.Phase;
+import metrics.PhaseTimer;
+import output.Artifact;
+import output.OutputLayout;
+import parser.Parser;
+import semantic.SemanticAnalyzer;
+import semantic.TableEntry;
+import util.Trace;
+
+// Runs one input file through every phase and records the outcome and metrics per phase
+class Compilation {
+    private final File inputFile;
+    private final OutputLayout layout;
+    private final boolean writeTokenXml; // only with --xml-tokens
+    private final boolean compactTreeXml; // only with --compact-xml
+    private final MetricsFormat metricsFormat; // null unless --metrics was given
+    private final CompileMetrics metrics;
+    private boolean succeeded;
+    private String error;
+
+    Compilation(File inputFile, OutputLayout layout, boolean writeTokenXml, boolean compactTreeXml,
+            MetricsFormat metricsFormat) {
+        this.inputFile = inputFile;
+        this.layout = layout;
+        this.writeTokenXml = writeTokenXml;
+        this.compactTreeXml = compactTreeXml;
+        this.metricsFormat = metricsFormat;
+        this.metrics = new CompileMetrics(inputFile.getName());
+    }
+
+    void run() {
+        String inputName = inputFile.getName();
+        Writer tokenXml = null;
+        try {
+            // Create the Lexer instance; it only scans when the parser asks for tokens
+            PhaseTimer timer = PhaseTimer.start();
+            tokenXml = writeTokenXml ? layout.open(inputName, Artifact.TOKENS) : null;
+            Lexer lexer = new Lexer(inputFile.getAbsolutePath(), tokenXml);
+            Trace.summary("Processed: " + inputName
+                    + (writeTokenXml ? " -> " + layout.describe(inputName, Artifact.TOKENS) : ""));
+
+            Parser parser = new Parser();
+            parser.setOutputLayout(layout, inputName);
+            parser.setCompactTreeXml(compactTreeXml);
+            if (writeTokenXml) {
+                List<Token> tokens = lexer.getTokens(); // Write the complete token XML even if parsing fails
+                parser.setTokens(tokens);
+                metrics.set(Counter.TOKENS, tokens.size());
+                timer.stop(metrics, Phase.LEX);
+                timer = PhaseTimer.start();
+                parser.parseTokens();
+                timer.stop(metrics, Phase.PARSE);
+            } else if (metricsFormat == null) {
+                // Lexing and parsing interleave; without --metrics the lexer's share stays in PARSE rather
+                // than reading the clocks twice per token
+                timer.stop(metrics, Phase.LEX); // reading the file
+                timer = PhaseTimer.start();
+                parser.parseTokens(lexer);
+                timer.stop(metrics, Phase.PARSE);
+            } else {
+                // Lexing and parsing interleave, so charge the lexer's wall time and allocation token by
+                // token. Reading CPU time per token would cost more than lexing it, so the lexer's CPU
+                // time while parsing is counted under PARSE.
+                timer.stop(metrics, Phase.LEX); // reading the file
+                long[] lexed = new long[3]; // tokens, wall, allocated bytes
+                TokenSource timedLexer = () -> {
+                    long wallStart = System.nanoTime();
+                    long allocatedStart = PhaseTimer.currentAllocatedBytes();
+                    Token token = lexer.nextToken();
+                    lexed[0]++;
+                    lexed[1] += System.nanoTime() - wallStart;
+                    lexed[2] += PhaseTimer.currentAllocatedBytes() - allocatedStart;
+                    return token;
+                };
+                timer = PhaseTimer.start();
+                parser.parseTokens(timedLexer);
+                metrics.set(Counter.TOKENS, lexed[0]);
+                metrics.add(Phase.LEX, lexed[1], 0, lexed[2]);
+                metrics.add(Phase.PARSE, timer.wallNanos() - lexed[1], timer.cpuNanos(), timer.allocatedBytes() - lexed[2]);
+            }
+            metrics.set(Counter.SHIFTS, parser.getShiftCount());
+            metrics.set(Counter.REDUCES, parser.getReduceCount());
+            metrics.set(Counter.TREE_NODES, parser.getTree().getNodeCount());
+            if (!parser.isAccepted()) {
+                error = "syntax error";
+                return;
+            }
+
+            timer = PhaseTimer.start();
+            SemanticAnalyzer sa = new SemanticAnalyzer(parser.getTree());
+            sa.analyze();
+            List<TableEntry> symbolTable = sa.getSymbolTable();
+            timer.stop(metrics, Phase.ANALYZE);
+            metrics.set(Counter.SYMBOLS, symbolTable.size());
+
+            timer = PhaseTimer.start();
+            Trace.trace("Intermediate code generator");
+            IntermediateCodeGenerator icg = new IntermediateCodeGenerator(symbolTable);
+            if (Trace.isTracing()) {
+                icg.displayIntermediateCode();
+            }
+            icg.writeIntermediateCode(layout, inputName);
+            timer.stop(metrics, Phase.GENERATE);
+            succeeded = true;
+        } catch (Exception e) {
+            error = describe(e);
+            if (Trace.isTracing()) {
+                e.printStackTrace();
+            }
+        } finally {
+            closeQuietly(tokenXml); // the lexer only closes it at EOF
+            writeMetrics(inputName);
+        }
+    }
+
+    // Records a failure that escaped run(), e.g. an Error thrown on a worker thread
+    void fail(Throwable cause) {
+        succeeded = false;
+        error = describe(cause);
+    }
+
+    // The message of an exception, or the class as well when there is no message or it is an Error
+    private static String describe(Throwable cause) {
+        return cause instanceof Exception && cause.getMessage() != null ? cause.getMessage() : cause.toString();
+    }
+
+    private void writeMetrics(String inputName) {
+        if (metricsFormat == null) {
+            return;
+        }
+        try (Writer out = layout.open(inputName, metricsArtifact(metricsFormat))) {
+            metricsFormat.write(metrics, out);
+        } catch (IOException e) {
+            System.err.println("Error writing metrics for " + inputName + ": " + e.getMessage());
+        }
+    }
+
+    static Artifact metricsArtifact(MetricsFormat format) {
+        return format == MetricsFormat.JSON ? Artifact.METRICS_JSON : Artifact.METRICS_CSV;
+    }
+
+    private static void closeQuietly(Writer writer) {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                System.err.println("Error closing " + writer + ": " + e.getMessage());
+            }
+        }
+    }
+
+    File getInputFile() {
+        return inputFile;
+    }
+
+    boolean isSucceeded() {
+        return succeeded;
+    }
+
+    String getError() {
+        return error;
+    }
+
+    CompileMetrics getMetrics() {
+        return metrics;
+    }
+}
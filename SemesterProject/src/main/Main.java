@@ -1,74 +1,226 @@
 package main;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
-import generator.IntermediateCodeGenerator;
-import lexer.Lexer;
-import parser.Parser;
-import semantic.SemanticAnalyzer;
-import semantic.TableEntry;
+import metrics.CompileMetrics;
+import metrics.MetricsFormat;
+import metrics.MetricsReport;
+import metrics.Phase;
+import output.Artifact;
+import output.DirectoryLayout;
+import output.InMemoryLayout;
+import output.OutputLayout;
+import util.Trace;
 
 public class Main {
+    private static final String USAGE = "Usage: java main.Main [--xml-tokens] [--compact-xml] [--in-memory]"
+            + " [--threads=N|auto] [--metrics=json|csv] [--quiet|--summary|--trace]";
 
     @SuppressWarnings("UseSpecificCatch")
     public static void main(String[] args) {
         String inputDir = "txt"; // Directory for input .txt files
-        String outputDir = "lexer_outputs"; // Directory for output XML files
+        List<String> options = Arrays.asList(args);
+        boolean writeTokenXml = options.contains("--xml-tokens"); // Token XML is only for debugging
+        boolean compactTreeXml = options.contains("--compact-xml"); // Parse tree XML without indentation
+        int threads; // More than one thread compiles files concurrently
+        MetricsFormat metricsFormat; // per file and for the whole batch
+        try {
+            threads = parseThreads(options);
+            metricsFormat = parseMetricsFormat(options);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error: " + e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+            return;
+        }
+        Trace.setLevel(parseTraceLevel(options));
+        // Every file gets its own outputs; --in-memory skips the disk for throughput runs
+        OutputLayout layout = options.contains("--in-memory") ? new InMemoryLayout() : new DirectoryLayout();
         File folder = new File(inputDir);
-        System.out.println("here");
         if (!folder.exists() || !folder.isDirectory()) {
             System.out.println("Error: 'txt' directory not found.");
+            System.exit(1);
             return;
         }
 
-        // Ensure the output directory exists
-        File outputFolder = new File(outputDir);
-        if (!outputFolder.exists()) {
-            outputFolder.mkdir(); // Create the output directory if it doesn't exist
-        }
-
-        // List all .txt files in the txt/ directory
+        // List all .txt files in the txt/ directory, sorted so the summary is always in the same order
         File[] listOfFiles = folder.listFiles((dir, name) -> name.endsWith(".txt"));
 
         if (listOfFiles == null || listOfFiles.length == 0) {
             System.out.println("No .txt files found in the 'txt' directory.");
             return;
         }
+        Arrays.sort(listOfFiles);
 
-        // Process each .txt file
+        List<Compilation> compilations = new ArrayList<>();
         for (File inputFile : listOfFiles) {
-            String inputFilePath = inputFile.getAbsolutePath(); // Get the full path of the .txt file
-            String outputXmlPath = generateOutputFileName(outputDir, inputFile.getName()); // Dynamically generate output XML
+            compilations.add(new Compilation(inputFile, layout, writeTokenXml, compactTreeXml, metricsFormat));
+        }
+
+        long start = System.nanoTime();
+        runAll(compilations, threads);
+        long elapsed = System.nanoTime() - start;
+
+        printSummary(compilations, threads, elapsed);
+        if (metricsFormat != null) {
+            writeBatchMetrics(compilations, threads, elapsed, layout, inputDir, metricsFormat);
+        }
+    }
+
+    // Runs every compilation, up to threads at once. Whatever a task throws past Compilation.run, such as
+    // an Error, is recorded on its compilation instead of being lost in the pool.
+    static void runAll(List<Compilation> compilations, int threads) {
+        if (threads > 1) {
+            ExecutorService executor = new ForkJoinPool(threads);
             try {
-                // Create the Lexer instance and process the input file
-                @SuppressWarnings("unused")
-                Lexer lexer = new Lexer(inputFilePath, outputXmlPath);
-                System.out.println("Processed: " + inputFile.getName() + " -> " + outputXmlPath);
-
-                // Pass the XML output to the parser
-                Parser parser = new Parser();
-                parser.readTokensFromXML(outputXmlPath); // Read tokens from XML file
-                parser.parseTokens();
-
-                SemanticAnalyzer sa = new SemanticAnalyzer(parser.getParseTree());
-                sa.analyze();
-
-                List<TableEntry> symbolTable = sa.getSymbolTable();
-                System.out.println("Intermediate code generator");
-                IntermediateCodeGenerator icg = new IntermediateCodeGenerator(symbolTable);
-                icg.displayIntermediateCode();
-                icg.writeIntermediateCodeToFile();
-            } catch (Exception e) {
-                e.printStackTrace();
+                List<Callable<Void>> tasks = new ArrayList<>();
+                for (Compilation compilation : compilations) {
+                    tasks.add(() -> {
+                        compilation.run();
+                        return null;
+                    });
+                }
+                List<Future<Void>> results = executor.invokeAll(tasks);
+                for (int i = 0; i < results.size(); i++) {
+                    try {
+                        results.get(i).get();
+                    } catch (ExecutionException e) {
+                        compilations.get(i).fail(e.getCause());
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                System.err.println("Batch compilation interrupted");
+            } finally {
+                executor.shutdown();
+            }
+        } else {
+            // Process each .txt file
+            for (Compilation compilation : compilations) {
+                compilation.run();
+            }
+        }
+    }
+
+    // Written under the input folder's name, e.g. metrics/metrics_txt.json
+    private static void writeBatchMetrics(List<Compilation> compilations, int threads, long elapsedNanos,
+            OutputLayout layout, String inputDir, MetricsFormat format) {
+        List<CompileMetrics> files = new ArrayList<>();
+        for (Compilation compilation : compilations) {
+            files.add(compilation.getMetrics());
+        }
+        MetricsReport report = new MetricsReport(files, threads, elapsedNanos);
+        Artifact artifact = Compilation.metricsArtifact(format);
+        try (Writer out = layout.open(inputDir, artifact)) {
+            report.write(format, out);
+            Trace.summary("Metrics written to " + layout.describe(inputDir, artifact));
+        } catch (IOException e) {
+            System.err.println("Error writing batch metrics: " + e.getMessage());
+        }
+    }
+
+    // Results in input order, then totals per phase
+    private static void printSummary(List<Compilation> compilations, int threads, long elapsedNanos) {
+        if (!Trace.isSummary()) {
+            return;
+        }
+
+        int succeeded = 0;
+        long[] totals = new long[Phase.values().length];
+        StringBuilder lines = new StringBuilder();
+        for (Compilation compilation : compilations) {
+            lines.append(String.format("%-24s", compilation.getInputFile().getName()));
+            if (compilation.isSucceeded()) {
+                succeeded++;
+                lines.append(String.format("%-8s", "ok"));
+            } else {
+                lines.append(String.format("%-8s", "FAILED"));
+            }
+            for (Phase phase : Phase.values()) {
+                long nanos = compilation.getMetrics().getWallNanos(phase);
+                totals[phase.ordinal()] += nanos;
+                lines.append(String.format("%12.3f", nanos / 1e6));
+            }
+            if (!compilation.isSucceeded()) {
+                lines.append("  ").append(compilation.getError());
+            }
+            lines.append('\n');
+        }
+
+        System.out.println();
+        System.out.println("Compiled " + compilations.size() + " file(s) on " + threads + " thread(s): " + succeeded
+                + " succeeded, " + (compilations.size() - succeeded) + " failed");
+        System.out.println(String.format("%-24s%-8s%12s%12s%12s%12s", "File", "Status", "Lex ms", "Parse ms",
+                "Analyze ms", "Codegen ms"));
+        System.out.print(lines);
+        System.out.print(String.format("%-24s%-8s", "Total", ""));
+        for (long total : totals) {
+            System.out.print(String.format("%12.3f", total / 1e6));
+        }
+        System.out.println();
+        System.out.println(String.format("Wall time: %.3f ms", elapsedNanos / 1e6));
+    }
+
+    // --threads=N compiles up to N files at once; the default is one file at a time.
+    // Throws IllegalArgumentException unless N is a positive number or auto
+    static int parseThreads(List<String> options) {
+        for (String option : options) {
+            if (option.startsWith("--threads=")) {
+                String value = option.substring("--threads=".length());
+                if (value.equals("auto")) {
+                    return Runtime.getRuntime().availableProcessors();
+                }
+                int threads;
+                try {
+                    threads = Integer.parseInt(value);
+                } catch (NumberFormatException e) {
+                    threads = 0;
+                }
+                if (threads < 1) {
+                    throw new IllegalArgumentException("--threads needs a positive number or auto, not '" + value + "'");
+                }
+                return threads;
             }
         }
+        return 1;
     }
 
-    // Method to generate a dynamic output XML file name based on input file name
-    private static String generateOutputFileName(String outputDir, String inputFileName) {
-        String baseName = inputFileName.replace(".txt", ""); // Remove .txt extension
-        return outputDir + "/Lexer_out_" + baseName + ".xml"; // Save output in the output/ directory
+    // --metrics=json or --metrics=csv exports metrics; null when not asked for.
+    // Throws IllegalArgumentException for any other format
+    static MetricsFormat parseMetricsFormat(List<String> options) {
+        for (String option : options) {
+            if (option.startsWith("--metrics=")) {
+                String value = option.substring("--metrics=".length());
+                try {
+                    return MetricsFormat.valueOf(value.toUpperCase(Locale.ROOT));
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("--metrics needs json or csv, not '" + value + "'");
+                }
+            }
+        }
+        return null;
+    }
+
+    // --quiet, --summary (the default) or --trace
+    private static Trace.Level parseTraceLevel(List<String> options) {
+        if (options.contains("--trace")) {
+            return Trace.Level.TRACE;
+        }
+        if (options.contains("--quiet")) {
+            return Trace.Level.QUIET;
+        }
+        return Trace.Level.SUMMARY;
     }
 
     private static String generateOutputFileNameCode(String outputDir, String inputFileName) {
@@ -0,0 +1,118 @@
+package metrics;
+
+import java.util.Locale;
+
+/**
+ * Wall time, CPU time and allocated bytes per phase, plus work counters, for one
+ * compilation or for a whole batch added together. Not thread-safe; each compilation
+ * records into its own instance.
+ */
+public class CompileMetrics {
+    private static final Phase[] PHASES = Phase.values();
+    private static final Counter[] COUNTERS = Counter.values();
+
+    private final String name;
+    private final long[] wallNanos = new long[PHASES.length];
+    private final long[] cpuNanos = new long[PHASES.length];
+    private final long[] allocatedBytes = new long[PHASES.length];
+    private final long[] counters = new long[COUNTERS.length];
+
+    public CompileMetrics(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void add(Phase phase, long wall, long cpu, long allocated) {
+        wallNanos[phase.ordinal()] += wall;
+        cpuNanos[phase.ordinal()] += cpu;
+        allocatedBytes[phase.ordinal()] += allocated;
+    }
+
+    public long getWallNanos(Phase phase) {
+        return wallNanos[phase.ordinal()];
+    }
+
+    public long getCpuNanos(Phase phase) {
+        return cpuNanos[phase.ordinal()];
+    }
+
+    public long getAllocatedBytes(Phase phase) {
+        return allocatedBytes[phase.ordinal()];
+    }
+
+    public void set(Counter counter, long value) {
+        counters[counter.ordinal()] = value;
+    }
+
+    public void add(Counter counter, long value) {
+        counters[counter.ordinal()] += value;
+    }
+
+    public long get(Counter counter) {
+        return counters[counter.ordinal()];
+    }
+
+    // Adds every phase and counter of other to this one, for batch totals
+    public void addAll(CompileMetrics other) {
+        for (int i = 0; i < PHASES.length; i++) {
+            wallNanos[i] += other.wallNanos[i];
+            cpuNanos[i] += other.cpuNanos[i];
+            allocatedBytes[i] += other.allocatedBytes[i];
+        }
+        for (int i = 0; i < COUNTERS.length; i++) {
+            counters[i] += other.counters[i];
+        }
+    }
+
+    public String toJson() {
+        StringBuilder json = new StringBuilder();
+        json.append("{\"name\": \"").append(name.replace("\\", "\\\\").replace("\"", "\\\"")).append("\", \"phases\": {");
+        for (Phase phase : PHASES) {
+            int i = phase.ordinal();
+            json.append(i == 0 ? "" : ", ").append('"').append(key(phase)).append("\": {\"wallNanos\": ")
+                    .append(wallNanos[i]).append(", \"cpuNanos\": ").append(cpuNanos[i])
+                    .append(", \"allocatedBytes\": ").append(allocatedBytes[i]).append('}');
+        }
+        json.append("}, \"counters\": {");
+        for (Counter counter : COUNTERS) {
+            int i = counter.ordinal();
+            json.append(i == 0 ? "" : ", ").append('"').append(key(counter)).append("\": ").append(counters[i]);
+        }
+        return json.append("}}").toString();
+    }
+
+    public static String csvHeader() {
+        StringBuilder header = new StringBuilder("name");
+        for (Phase phase : PHASES) {
+            header.append(',').append(key(phase)).append("_wall_ns,").append(key(phase)).append("_cpu_ns,")
+                    .append(key(phase)).append("_allocated_bytes");
+        }
+        for (Counter counter : COUNTERS) {
+            header.append(',').append(key(counter));
+        }
+        return header.toString();
+    }
+
+    public String toCsvRow() {
+        StringBuilder row = new StringBuilder();
+        if (name.contains(",") || name.contains("\"")) {
+            row.append('"').append(name.replace("\"", "\"\"")).append('"');
+        } else {
+            row.append(name);
+        }
+        for (int i = 0; i < PHASES.length; i++) {
+            row.append(',').append(wallNanos[i]).append(',').append(cpuNanos[i]).append(',').append(allocatedBytes[i]);
+        }
+        for (long value : counters) {
+            row.append(',').append(value);
+        }
+        return row.toString();
+    }
+
+    private static String key(Enum<?> value) {
+        return value.name().toLowerCase(Locale.ROOT);
+    }
+}
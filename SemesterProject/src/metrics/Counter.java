@@ -0,0 +1,10 @@
+package metrics;
+
+// Work counted during a compilation
+public enum Counter {
+    TOKENS,
+    SHIFTS,
+    REDUCES,
+    TREE_NODES,
+    SYMBOLS
+}
@@ -0,0 +1,23 @@
+package metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+
+// How metrics are exported
+public enum MetricsFormat {
+    JSON,
+    CSV;
+
+    // One file's metrics on their own
+    public void write(CompileMetrics metrics, Writer out) throws IOException {
+        if (this == JSON) {
+            out.write(metrics.toJson());
+            out.write('\n');
+        } else {
+            out.write(CompileMetrics.csvHeader());
+            out.write('\n');
+            out.write(metrics.toCsvRow());
+            out.write('\n');
+        }
+    }
+}
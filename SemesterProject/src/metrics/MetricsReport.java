@@ -0,0 +1,52 @@
+package metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+// Metrics of every file in a batch, in input order, with their totals
+public class MetricsReport {
+    private final List<CompileMetrics> files = new ArrayList<>();
+    private final CompileMetrics total = new CompileMetrics("total");
+    private final int threads;
+    private final long wallNanos;
+
+    public MetricsReport(List<CompileMetrics> files, int threads, long wallNanos) {
+        for (CompileMetrics file : files) {
+            this.files.add(file);
+            total.addAll(file);
+        }
+        this.threads = threads;
+        this.wallNanos = wallNanos;
+    }
+
+    public List<CompileMetrics> getFiles() {
+        return files;
+    }
+
+    // Every phase and counter summed over the batch; with several threads the phase times overlap
+    public CompileMetrics getTotal() {
+        return total;
+    }
+
+    public void write(MetricsFormat format, Writer out) throws IOException {
+        if (format == MetricsFormat.JSON) {
+            out.write("{\"threads\": " + threads + ", \"wallNanos\": " + wallNanos + ",\n \"files\": [");
+            for (int i = 0; i < files.size(); i++) {
+                out.write(i == 0 ? "\n  " : ",\n  ");
+                out.write(files.get(i).toJson());
+            }
+            out.write("],\n \"total\": " + total.toJson() + "}\n");
+        } else {
+            out.write(CompileMetrics.csvHeader());
+            out.write('\n');
+            for (CompileMetrics file : files) {
+                out.write(file.toCsvRow());
+                out.write('\n');
+            }
+            out.write(total.toCsvRow());
+            out.write('\n');
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package metrics;
+
+// The compiler phases that metrics are recorded for, in pipeline order
+public enum Phase {
+    LEX,
+    PARSE,
+    ANALYZE,
+    GENERATE
+}
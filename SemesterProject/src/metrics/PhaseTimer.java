@@ -0,0 +1,66 @@
+package metrics;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Measures a stretch of work on the current thread: wall time, CPU time and bytes
+ * allocated. CPU time and allocation come from the ThreadMXBean and read as 0 on
+ * JVMs that do not support them or while their measurement is disabled.
+ */
+public final class PhaseTimer {
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    private static final com.sun.management.ThreadMXBean ALLOCATION = allocationBean();
+
+    private final long wallStart;
+    private final long cpuStart;
+    private final long allocatedStart;
+
+    private PhaseTimer() {
+        wallStart = System.nanoTime();
+        cpuStart = currentCpuNanos();
+        allocatedStart = currentAllocatedBytes();
+    }
+
+    public static PhaseTimer start() {
+        return new PhaseTimer();
+    }
+
+    // Adds the time and allocation since start() to phase
+    public void stop(CompileMetrics metrics, Phase phase) {
+        metrics.add(phase, wallNanos(), cpuNanos(), allocatedBytes());
+    }
+
+    public long wallNanos() {
+        return System.nanoTime() - wallStart;
+    }
+
+    public long cpuNanos() {
+        return currentCpuNanos() - cpuStart;
+    }
+
+    public long allocatedBytes() {
+        return currentAllocatedBytes() - allocatedStart;
+    }
+
+    // CPU time of the current thread; costs about as much as a small system call
+    public static long currentCpuNanos() {
+        return THREADS.isCurrentThreadCpuTimeSupported() && THREADS.isThreadCpuTimeEnabled()
+                ? THREADS.getCurrentThreadCpuTime() : 0;
+    }
+
+    // Bytes allocated by the current thread so far; cheap enough to read per token
+    public static long currentAllocatedBytes() {
+        return ALLOCATION != null && ALLOCATION.isThreadAllocatedMemoryEnabled()
+                ? ALLOCATION.getCurrentThreadAllocatedBytes() : 0;
+    }
+
+    // The bean as the HotSpot extension when it can count allocation at all, else null
+    private static com.sun.management.ThreadMXBean allocationBean() {
+        if (THREADS instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) THREADS;
+            return bean.isThreadAllocatedMemorySupported() ? bean : null;
+        }
+        return null;
+    }
+}
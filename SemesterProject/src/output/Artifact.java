@@ -0,0 +1,10 @@
+package output;
+
+// The files a compilation can produce for one input
+public enum Artifact {
+    TOKENS,
+    PARSE_TREE,
+    INTERMEDIATE,
+    METRICS_JSON,
+    METRICS_CSV
+}
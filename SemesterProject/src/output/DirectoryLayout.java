@@ -0,0 +1,57 @@
+package output;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * One file per input and artifact under the usual output folders:
+ * lexer_outputs/Lexer_out_NAME.xml, parser_output/parse_tree_NAME.xml and
+ * intermediate/intermediate_NAME.txt, with metrics in metrics/metrics_NAME.json or .csv.
+ */
+public class DirectoryLayout implements OutputLayout {
+    private final File baseDir; // null means the working directory
+
+    public DirectoryLayout() {
+        this(null);
+    }
+
+    public DirectoryLayout(File baseDir) {
+        this.baseDir = baseDir;
+    }
+
+    @Override
+    public Writer open(String inputName, Artifact artifact) throws IOException {
+        File file = fileFor(inputName, artifact);
+        File folder = file.getAbsoluteFile().getParentFile();
+        if (!folder.exists()) {
+            folder.mkdirs(); // Create the folder if it doesn't exist
+        }
+        return new BufferedWriter(new FileWriter(file));
+    }
+
+    @Override
+    public String describe(String inputName, Artifact artifact) {
+        return fileFor(inputName, artifact).getPath();
+    }
+
+    public File fileFor(String inputName, Artifact artifact) {
+        String baseName = inputName.replace(".txt", ""); // Remove .txt extension
+        switch (artifact) {
+            case TOKENS:
+                return new File(new File(baseDir, "lexer_outputs"), "Lexer_out_" + baseName + ".xml");
+            case PARSE_TREE:
+                return new File(new File(baseDir, "parser_output"), "parse_tree_" + baseName + ".xml");
+            case INTERMEDIATE:
+                return new File(new File(baseDir, "intermediate"), "intermediate_" + baseName + ".txt");
+            case METRICS_JSON:
+                return new File(new File(baseDir, "metrics"), "metrics_" + baseName + ".json");
+            case METRICS_CSV:
+                return new File(new File(baseDir, "metrics"), "metrics_" + baseName + ".csv");
+            default:
+                throw new IllegalArgumentException("Unknown artifact: " + artifact);
+        }
+    }
+}
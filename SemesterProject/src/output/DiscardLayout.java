@@ -0,0 +1,16 @@
+package output;
+
+import java.io.Writer;
+
+// Throws every artifact away, so only the work of producing it is measured
+public class DiscardLayout implements OutputLayout {
+    @Override
+    public Writer open(String inputName, Artifact artifact) {
+        return Writer.nullWriter();
+    }
+
+    @Override
+    public String describe(String inputName, Artifact artifact) {
+        return "nowhere";
+    }
+}
@@ -0,0 +1,36 @@
+package output;
+
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps every artifact in memory instead of on disk, for throughput runs and for
+ * callers that want the output as a string. Safe to share between threads.
+ */
+public class InMemoryLayout implements OutputLayout {
+    private final Map<String, StringWriter> outputs = new ConcurrentHashMap<>();
+
+    @Override
+    public Writer open(String inputName, Artifact artifact) {
+        StringWriter writer = new StringWriter();
+        outputs.put(key(inputName, artifact), writer);
+        return writer;
+    }
+
+    @Override
+    public String describe(String inputName, Artifact artifact) {
+        return "memory:" + key(inputName, artifact);
+    }
+
+    // The text written for an artifact, or null if nothing was written
+    public String getOutput(String inputName, Artifact artifact) {
+        StringWriter writer = outputs.get(key(inputName, artifact));
+        return writer == null ? null : writer.toString();
+    }
+
+    private static String key(String inputName, Artifact artifact) {
+        return inputName + "/" + artifact;
+    }
+}
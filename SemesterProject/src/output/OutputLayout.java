@@ -0,0 +1,16 @@
+package output;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Decides where each phase writes its output for a given input file, so files in a
+ * batch never overwrite each other and throughput runs can skip the disk entirely.
+ */
+public interface OutputLayout {
+    // Opens a fresh writer for one artifact of one input; the caller closes it
+    Writer open(String inputName, Artifact artifact) throws IOException;
+
+    // Where the artifact ends up, for log messages
+    String describe(String inputName, Artifact artifact);
+}
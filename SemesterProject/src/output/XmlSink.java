@@ -0,0 +1,103 @@
+package output;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Buffered character sink shared by the XML writers. Output is collected in a reusable
+ * char buffer and handed to the underlying writer in large chunks, numbers are written
+ * without building Strings, and values are only escaped when they contain &amp;, &lt;
+ * or &gt;.
+ */
+public final class XmlSink implements Closeable {
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Writer out;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int length;
+
+    public XmlSink(Writer out) {
+        this.out = out;
+    }
+
+    public void append(String text) throws IOException {
+        append(text, 0, text.length());
+    }
+
+    // text[start, end), copied straight into the buffer
+    public void append(String text, int start, int end) throws IOException {
+        int textLength = end - start;
+        if (length + textLength > buffer.length) {
+            drain();
+            if (textLength > buffer.length) {
+                out.write(text, start, textLength);
+                return;
+            }
+        }
+        text.getChars(start, end, buffer, length);
+        length += textLength;
+    }
+
+    // Text content with &, < and > replaced by their entities
+    public void appendEscaped(String value) throws IOException {
+        int start = 0;
+        for (int i = 0; i < value.length(); i++) {
+            String entity;
+            switch (value.charAt(i)) {
+                case '&':
+                    entity = "&amp;";
+                    break;
+                case '<':
+                    entity = "&lt;";
+                    break;
+                case '>':
+                    entity = "&gt;";
+                    break;
+                default:
+                    continue;
+            }
+            append(value, start, i);
+            append(entity);
+            start = i + 1;
+        }
+        append(value, start, value.length());
+    }
+
+    // A non-negative int in decimal
+    public void appendInt(int value) throws IOException {
+        if (length + 11 > buffer.length) {
+            drain();
+        }
+        int digits = 1;
+        for (int rest = value / 10; rest > 0; rest /= 10) {
+            digits++;
+        }
+        for (int i = length + digits - 1; i >= length; i--) {
+            buffer[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        length += digits;
+    }
+
+    // Hands everything written so far to the underlying writer
+    public void flush() throws IOException {
+        drain();
+        out.flush();
+    }
+
+    // Flushes, then closes the underlying writer even if flushing failed
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            out.close();
+        }
+    }
+
+    private void drain() throws IOException {
+        out.write(buffer, 0, length);
+        length = 0;
+    }
+}
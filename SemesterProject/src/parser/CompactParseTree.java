@@ -0,0 +1,330 @@
+package parser;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import lexer.Token;
+
+/**
+ * Parse tree kept in parallel primitive arrays indexed by unid, for programs too large
+ * to hold as one object per node. Each node is a kind, a symbol id (root and inner
+ * nodes) or a token index (leaves), a parent and a run of child unids in a shared pool.
+ * Leaf tokens live in a shared buffer of type ordinals and values, and symbols are the
+ * ids from {@link GrammarSymbols}. Nodes are read by unid through {@link ParseTreeView}
+ * or walked with a reusable {@link Cursor}.
+ *
+ * Children are stored in the order the parser pops them, like {@link TreeNode}, so the
+ * tree converts to and from a ParseTree and writes the same SYNTREE XML.
+ */
+public class CompactParseTree implements ParseTreeView {
+    public static final byte ROOT = 0;
+    public static final byte INNER = 1;
+    public static final byte LEAF = 2;
+    private static final int NONE = 0; // unids start at 1, so 0 means no node
+    private static final Token.TokenType[] TOKEN_TYPES = Token.TokenType.values();
+
+    private byte[] kinds = new byte[64];
+    private int[] data = new int[64]; // symbol id for root and inner nodes, token index for leaves
+    private int[] parents = new int[64];
+    private int[] childStarts = new int[64]; // where the node's children start in childIds
+    private int[] childCounts = new int[64];
+    private int[] childIds = new int[64];
+    private int childIdCount;
+    private int nextId = 1;
+    private int root = NONE;
+
+    // Shared token buffer
+    private byte[] tokenTypes = new byte[64]; // TokenType ordinal + 1, 0 for none
+    private String[] tokenValues = new String[64];
+    private int tokenCount;
+
+    public int addRoot(String startSymbol) {
+        root = addNode(ROOT, GrammarSymbols.intern(startSymbol));
+        return root;
+    }
+
+    public int addInner(String nonterminal) {
+        return addInner(GrammarSymbols.intern(nonterminal));
+    }
+
+    public int addInner(int symbolId) {
+        return addNode(INNER, symbolId);
+    }
+
+    public int addLeaf(Token token) {
+        if (tokenCount == tokenValues.length) {
+            tokenTypes = Arrays.copyOf(tokenTypes, tokenCount * 2);
+            tokenValues = Arrays.copyOf(tokenValues, tokenCount * 2);
+        }
+        tokenTypes[tokenCount] = (byte) (token.getType() == null ? 0 : token.getType().ordinal() + 1);
+        tokenValues[tokenCount] = token.getValue();
+        return addNode(LEAF, tokenCount++);
+    }
+
+    // Links the first count entries of children under parent, replacing any earlier children.
+    // Replaced children are detached; their old run in the pool is left unused.
+    public void setChildren(int parent, int[] children, int count) {
+        for (int i = 0; i < childCounts[parent]; i++) {
+            parents[childIds[childStarts[parent] + i]] = NONE;
+        }
+        if (childIdCount + count > childIds.length) {
+            childIds = Arrays.copyOf(childIds, Math.max(childIds.length * 2, childIdCount + count));
+        }
+        System.arraycopy(children, 0, childIds, childIdCount, count);
+        childStarts[parent] = childIdCount;
+        childCounts[parent] = count;
+        childIdCount += count;
+        for (int i = 0; i < count; i++) {
+            parents[children[i]] = parent;
+        }
+    }
+
+    public int getRoot() {
+        return root;
+    }
+
+    // Root, inner and leaf nodes together
+    @Override
+    public int getNodeCount() {
+        return nextId - 1;
+    }
+
+    @Override
+    public int getRootId() {
+        return root;
+    }
+
+    public byte getKind(int unid) {
+        return kinds[unid];
+    }
+
+    @Override
+    public boolean isLeaf(int unid) {
+        return kinds[unid] == LEAF;
+    }
+
+    @Override
+    public int getSymbolId(int unid) {
+        return data[unid];
+    }
+
+    @Override
+    public int getParentId(int unid) {
+        return parents[unid];
+    }
+
+    @Override
+    public int getChildCount(int unid) {
+        return childCounts[unid];
+    }
+
+    @Override
+    public int getChildId(int unid, int index) {
+        return childIds[childStarts[unid] + index];
+    }
+
+    @Override
+    public Token.TokenType getTokenType(int unid) {
+        int type = tokenTypes[data[unid]];
+        return type == 0 ? null : TOKEN_TYPES[type - 1];
+    }
+
+    @Override
+    public String getTokenValue(int unid) {
+        return tokenValues[data[unid]];
+    }
+
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    // Same nodes, unids and children as tree
+    public static CompactParseTree from(ParseTree tree) {
+        CompactParseTree compact = new CompactParseTree();
+        List<TreeNode> nodes = new ArrayList<>();
+        nodes.add(tree.getRoot());
+        nodes.addAll(tree.getInnerNodes());
+        nodes.addAll(tree.getLeafNodes());
+        nodes.sort((a, b) -> Integer.compare(a.getUnid(), b.getUnid()));
+        for (TreeNode node : nodes) {
+            if (node.getUnid() != compact.nextId) {
+                throw new IllegalArgumentException("Parse tree nodes are not numbered from 1 without gaps at " + node.getUnid());
+            }
+            if (node instanceof RootNode) {
+                compact.addRoot(((RootNode) node).getStartSymbol());
+            } else if (node instanceof InnerNode) {
+                compact.addInner(((InnerNode) node).getSymbolId());
+            } else {
+                compact.addLeaf(((LeafNode) node).getToken());
+            }
+        }
+        int[] children = new int[8];
+        for (TreeNode node : nodes) {
+            if (children.length < node.getChildCount()) {
+                children = new int[node.getChildCount()];
+            }
+            for (int i = 0; i < node.getChildCount(); i++) {
+                children[i] = node.getChild(i).getUnid();
+            }
+            compact.setChildren(node.getUnid(), children, node.getChildCount());
+        }
+        return compact;
+    }
+
+    // An object tree with the same unids, for the phases that work on ParseTree
+    public ParseTree toParseTree() {
+        ParseTree tree = new ParseTree();
+        TreeNode[] nodes = new TreeNode[nextId];
+        for (int unid = 1; unid < nextId; unid++) {
+            switch (kinds[unid]) {
+                case ROOT: {
+                    RootNode node = new RootNode(unid, GrammarSymbols.name(data[unid]));
+                    tree.setRoot(node);
+                    nodes[unid] = node;
+                    break;
+                }
+                case INNER: {
+                    InnerNode node = new InnerNode(unid, data[unid]);
+                    tree.addInnerNode(node);
+                    nodes[unid] = node;
+                    break;
+                }
+                default: {
+                    int type = tokenTypes[data[unid]];
+                    LeafNode node = new LeafNode(unid, new Token(type == 0 ? null : TOKEN_TYPES[type - 1], tokenValues[data[unid]]));
+                    tree.addLeafNode(node);
+                    nodes[unid] = node;
+                    break;
+                }
+            }
+        }
+        for (int unid = 1; unid < nextId; unid++) {
+            int count = childCounts[unid];
+            if (count > 0) {
+                TreeNode[] children = new TreeNode[count];
+                for (int i = 0; i < count; i++) {
+                    children[i] = nodes[childIds[childStarts[unid] + i]];
+                }
+                nodes[unid].setChildren(children);
+            }
+        }
+        return tree;
+    }
+
+    public void writeToXML(Writer out, boolean compact) throws IOException {
+        new ParseTreeXmlWriter(out, compact).write(this);
+    }
+
+    // Same format as ParseTree.writeToBinary; read back with ParseTreeBinaryReader
+    public void writeToBinary(OutputStream out) throws IOException {
+        new ParseTreeBinaryWriter(out).write(this);
+    }
+
+    private int addNode(byte kind, int value) {
+        int unid = nextId++;
+        if (unid == kinds.length) {
+            int capacity = kinds.length * 2;
+            kinds = Arrays.copyOf(kinds, capacity);
+            data = Arrays.copyOf(data, capacity);
+            parents = Arrays.copyOf(parents, capacity);
+            childStarts = Arrays.copyOf(childStarts, capacity);
+            childCounts = Arrays.copyOf(childCounts, capacity);
+        }
+        kinds[unid] = kind;
+        data[unid] = value;
+        return unid;
+    }
+
+    /**
+     * Flyweight view of one node. Moving the cursor only changes the unid it points at,
+     * so walking the whole tree allocates nothing.
+     */
+    public class Cursor {
+        private int node = root;
+        private int index = -1; // position among the parent's children, -1 until needed
+
+        public int getUnid() {
+            return node;
+        }
+
+        public void moveTo(int unid) {
+            node = unid;
+            index = -1;
+        }
+
+        public byte getKind() {
+            return kinds[node];
+        }
+
+        public boolean isLeaf() {
+            return kinds[node] == LEAF;
+        }
+
+        // GrammarSymbols id of a root or inner node
+        public int getSymbolId() {
+            return data[node];
+        }
+
+        public String getSymbol() {
+            return GrammarSymbols.name(data[node]);
+        }
+
+        // Unid of the parent, 0 for the root
+        public int getParentId() {
+            return parents[node];
+        }
+
+        public Token.TokenType getTokenType() {
+            return CompactParseTree.this.getTokenType(node);
+        }
+
+        public String getTokenValue() {
+            return tokenValues[data[node]];
+        }
+
+        public int getChildCount() {
+            return childCounts[node];
+        }
+
+        // Each move returns false and stays put if there is no such node
+        public boolean toParent() {
+            if (parents[node] == NONE) {
+                return false;
+            }
+            moveTo(parents[node]);
+            return true;
+        }
+
+        public boolean toFirstChild() {
+            if (childCounts[node] == 0) {
+                return false;
+            }
+            node = childIds[childStarts[node]];
+            index = 0;
+            return true;
+        }
+
+        public boolean toNextSibling() {
+            int parent = parents[node];
+            if (parent == NONE) {
+                return false;
+            }
+            if (index < 0) {
+                index = 0;
+                while (childIds[childStarts[parent] + index] != node) {
+                    index++;
+                }
+            }
+            if (index + 1 == childCounts[parent]) {
+                return false;
+            }
+            index++;
+            node = childIds[childStarts[parent] + index];
+            return true;
+        }
+    }
+}
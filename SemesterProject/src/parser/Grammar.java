@@ -0,0 +1,29 @@
+package parser;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable list of grammar rules, indexed by the rule numbers used in the
+ * reduce actions of the parsing table. Safe to share between threads.
+ */
+public final class Grammar {
+    private final List<GrammarRule> rules;
+
+    public Grammar(List<GrammarRule> rules) {
+        this.rules = Collections.unmodifiableList(new ArrayList<>(rules)); // GrammarRule itself is immutable
+    }
+
+    public GrammarRule getRule(int ruleNumber) {
+        return rules.get(ruleNumber);
+    }
+
+    public List<GrammarRule> getRules() {
+        return rules;
+    }
+
+    public int size() {
+        return rules.size();
+    }
+}
@@ -1,20 +1,33 @@
 package parser;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 public class GrammarRule {
-    private String lhs;
-    private List<String> rhs;
+    private final String lhs;
+    private final int lhsId;
+    private final List<String> rhs;
 
+    // Symbols are interned, so every rule shares one String per name
     public GrammarRule(String lhs, List<String> rhs) {
-        this.lhs = lhs;
-        this.rhs = rhs;
+        this.lhsId = GrammarSymbols.intern(lhs);
+        this.lhs = GrammarSymbols.name(lhsId);
+        List<String> symbols = new ArrayList<>(rhs.size());
+        for (String symbol : rhs) {
+            symbols.add(GrammarSymbols.name(GrammarSymbols.intern(symbol)));
+        }
+        this.rhs = Collections.unmodifiableList(symbols);
     }
 
     public String getLhs() {
         return lhs;
     }
 
+    public int getLhsId() {
+        return lhsId;
+    }
+
     public List<String> getRhs() {
         return rhs;
     }
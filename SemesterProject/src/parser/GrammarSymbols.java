@@ -0,0 +1,64 @@
+package parser;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interned grammar symbols. Every terminal and non-terminal name gets one small int id
+ * for the life of the program, so trees and rules compare symbols as ints and each name
+ * is held by a single String. Safe to use from any thread.
+ */
+public final class GrammarSymbols {
+    private static final Map<String, Integer> IDS = new ConcurrentHashMap<>();
+    private static volatile String[] names = new String[64];
+    private static int count;
+
+    // Non-terminals the semantic analyzer looks for
+    public static final int GLOBVARS = intern("GLOBVARS");
+    public static final int VTYP = intern("VTYP");
+    public static final int VNAME = intern("VNAME");
+    public static final int FUNCTIONS = intern("FUNCTIONS");
+    public static final int SUBFUNCS = intern("SUBFUNCS");
+    public static final int DECL = intern("DECL");
+    public static final int HEADER = intern("HEADER");
+    public static final int FTYP = intern("FTYP");
+    public static final int FNAME = intern("FNAME");
+    public static final int BODY = intern("BODY");
+    public static final int LOCVARS = intern("LOCVARS");
+
+    private GrammarSymbols() {
+    }
+
+    // The id of symbol, assigning the next free one the first time it is seen
+    public static int intern(String symbol) {
+        Integer id = IDS.get(symbol);
+        return id != null ? id : add(symbol);
+    }
+
+    // The id of a symbol that has already been interned, or -1; never adds one
+    public static int lookup(String symbol) {
+        Integer id = IDS.get(symbol);
+        return id != null ? id : -1;
+    }
+
+    // The name an id was interned from
+    public static String name(int id) {
+        return names[id];
+    }
+
+    private static synchronized int add(String symbol) {
+        Integer id = IDS.get(symbol);
+        if (id != null) {
+            return id;
+        }
+        String[] current = names;
+        if (count == current.length) {
+            current = Arrays.copyOf(current, count * 2);
+        }
+        current[count] = symbol;
+        names = current; // published before the id, so name() always sees it
+        IDS.put(symbol, count);
+        return count++;
+    }
+}
@@ -1,14 +1,22 @@
 package parser;
 
 public class InnerNode extends TreeNode {
-    private String nonterminal;
+    private final int symbolId; // see GrammarSymbols
 
-    public InnerNode(String nonterminal) {
-        super();
-        this.nonterminal = nonterminal;
+    public InnerNode(int unid, String nonterminal) {
+        this(unid, GrammarSymbols.intern(nonterminal));
+    }
+
+    public InnerNode(int unid, int symbolId) {
+        super(unid);
+        this.symbolId = symbolId;
     }
 
     public String getNonterminal() {
-        return nonterminal;
+        return GrammarSymbols.name(symbolId);
+    }
+
+    public int getSymbolId() {
+        return symbolId;
     }
 }
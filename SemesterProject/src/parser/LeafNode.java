@@ -3,8 +3,8 @@ import lexer.Token;
 public class LeafNode extends TreeNode {
     private Token token;
 
-    public LeafNode(Token token) {
-        super();
+    public LeafNode(int unid, Token token) {
+        super(unid);
         this.token = token;
     }
 
@@ -1,24 +1,54 @@
 package parser;
 
+import java.io.FileOutputStream;
 import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
-import javax.xml.stream.*;
+import lexer.Token;
 
-public class ParseTree {
+public class ParseTree implements ParseTreeView {
     private RootNode root;
     private List<InnerNode> innerNodes;
     private List<LeafNode> leafNodes;
-    private int indentLevel = 0;
+    private TreeNode[] nodesById = new TreeNode[64]; // indexed by unid
+    private int nextId = 1; // Each tree numbers its own nodes from 1
 
     public ParseTree() {
         this.innerNodes = new ArrayList<>();
         this.leafNodes = new ArrayList<>();
     }
 
+    public RootNode createRoot(String startSymbol) {
+        RootNode node = new RootNode(nextId++, startSymbol);
+        setRoot(node);
+        return node;
+    }
+
+    public InnerNode createInnerNode(String nonterminal) {
+        return createInnerNode(GrammarSymbols.intern(nonterminal));
+    }
+
+    public InnerNode createInnerNode(int symbolId) {
+        InnerNode node = new InnerNode(nextId++, symbolId);
+        addInnerNode(node);
+        return node;
+    }
+
+    public LeafNode createLeafNode(Token token) {
+        LeafNode node = new LeafNode(nextId++, token);
+        addLeafNode(node);
+        return node;
+    }
+
+    // Adds a node built elsewhere, e.g. when reading a saved tree; later ids continue after it
     public void setRoot(RootNode root) {
         this.root = root;
+        index(root);
     }
 
     public RootNode getRoot() {
@@ -27,6 +57,7 @@ public class ParseTree {
 
     public void addInnerNode(InnerNode node) {
         innerNodes.add(node);
+        index(node);
     }
 
     public List<InnerNode> getInnerNodes() {
@@ -39,136 +70,108 @@ public class ParseTree {
 
     public void addLeafNode(LeafNode node) {
         leafNodes.add(node);
+        index(node);
+    }
+
+    // Root, inner and leaf nodes together
+    @Override
+    public int getNodeCount() {
+        return (root != null ? 1 : 0) + innerNodes.size() + leafNodes.size();
     }
 
-    private void indent(XMLStreamWriter writer) throws XMLStreamException {
-        writer.writeCharacters("\n" + "  ".repeat(indentLevel));
+    // Node with the given unid, or null if it is not part of this tree
+    public TreeNode getNode(int unid) {
+        if (unid < 0 || unid >= nodesById.length) {
+            return null;
+        }
+        return nodesById[unid];
     }
 
-    public void writeToXML(String filePath) throws XMLStreamException, java.io.IOException {
-        XMLOutputFactory factory = XMLOutputFactory.newInstance();
-        XMLStreamWriter writer = factory.createXMLStreamWriter(new FileWriter(filePath));
+    // Parent of the node with the given unid, or null for the root and unknown ids
+    public TreeNode getParent(int unid) {
+        TreeNode node = getNode(unid);
+        return node == null ? null : node.getParent();
+    }
 
-        writer.writeStartElement("SYNTREE");
-        indentLevel++;
+    @Override
+    public int getRootId() {
+        return root.getUnid();
+    }
 
-        // Write ROOT
-        indent(writer);
-        writer.writeStartElement("ROOT");
-        indentLevel++;
+    @Override
+    public boolean isLeaf(int unid) {
+        return nodesById[unid] instanceof LeafNode;
+    }
 
-        indent(writer);
-        writer.writeStartElement("UNID");
-        writer.writeCharacters(String.valueOf(root.getUnid()));
-        writer.writeEndElement();
+    @Override
+    public int getSymbolId(int unid) {
+        TreeNode node = nodesById[unid];
+        return node instanceof InnerNode ? ((InnerNode) node).getSymbolId() : ((RootNode) node).getSymbolId();
+    }
 
-        indent(writer);
-        writer.writeStartElement("SYMB");
-        writer.writeCharacters(root.getStartSymbol());
-        writer.writeEndElement();
+    @Override
+    public int getParentId(int unid) {
+        return nodesById[unid].getParentId();
+    }
 
-        indent(writer);
-        writer.writeStartElement("CHILDREN");
-        indentLevel++;
-        for (Integer childId : root.getChildrenIds()) {
-            indent(writer);
-            writer.writeStartElement("ID");
-            writer.writeCharacters(String.valueOf(childId));
-            writer.writeEndElement();
-        }
-        indentLevel--;
-        indent(writer);
-        writer.writeEndElement(); // End CHILDREN
-
-        indentLevel--;
-        indent(writer);
-        writer.writeEndElement(); // End ROOT
-
-        // Write INNERNODES
-        indent(writer);
-        writer.writeStartElement("INNERNODES");
-        indentLevel++;
-
-        for (InnerNode node : innerNodes) {
-            indent(writer);
-            writer.writeStartElement("IN");
-            indentLevel++;
-
-            indent(writer);
-            writer.writeStartElement("PARENT");
-            writer.writeCharacters(String.valueOf(node.getParentId()));
-            writer.writeEndElement();
-
-            indent(writer);
-            writer.writeStartElement("UNID");
-            writer.writeCharacters(String.valueOf(node.getUnid()));
-            writer.writeEndElement();
-
-            indent(writer);
-            writer.writeStartElement("SYMB");
-            writer.writeCharacters(node.getNonterminal());
-            writer.writeEndElement();
-
-            indent(writer);
-            writer.writeStartElement("CHILDREN");
-            indentLevel++;
-            for (Integer childId : node.getChildrenIds()) {
-                indent(writer);
-                writer.writeStartElement("ID");
-                writer.writeCharacters(String.valueOf(childId));
-                writer.writeEndElement();
-            }
-            indentLevel--;
-            indent(writer);
-            writer.writeEndElement(); // End CHILDREN
-
-            indentLevel--;
-            indent(writer);
-            writer.writeEndElement(); // End IN
+    @Override
+    public int getChildCount(int unid) {
+        return nodesById[unid].getChildCount();
+    }
+
+    @Override
+    public int getChildId(int unid, int index) {
+        return nodesById[unid].getChild(index).getUnid();
+    }
+
+    @Override
+    public Token.TokenType getTokenType(int unid) {
+        return ((LeafNode) nodesById[unid]).getToken().getType();
+    }
+
+    @Override
+    public String getTokenValue(int unid) {
+        return ((LeafNode) nodesById[unid]).getToken().getValue();
+    }
+
+    private void index(TreeNode node) {
+        int unid = node.getUnid();
+        nextId = Math.max(nextId, unid + 1);
+        if (unid >= nodesById.length) {
+            nodesById = Arrays.copyOf(nodesById, Math.max(nodesById.length * 2, unid + 1));
         }
+        nodesById[unid] = node;
+    }
 
-        indentLevel--;
-        indent(writer);
-        writer.writeEndElement(); // End INNERNODES
-
-        // Write LEAFNODES
-        indent(writer);
-        writer.writeStartElement("LEAFNODES");
-        indentLevel++;
-
-        for (LeafNode node : leafNodes) {
-            indent(writer);
-            writer.writeStartElement("LEAF");
-            indentLevel++;
-
-            indent(writer);
-            writer.writeStartElement("PARENT");
-            writer.writeCharacters(String.valueOf(node.getParentId()));
-            writer.writeEndElement();
-
-            indent(writer);
-            writer.writeStartElement("UNID");
-            writer.writeCharacters(String.valueOf(node.getUnid()));
-            writer.writeEndElement();
-
-            indent(writer);
-            writer.writeStartElement("TERMINAL");
-            writer.writeCharacters(node.getToken().getValue());
-            writer.writeEndElement();
-
-            indentLevel--;
-            indent(writer);
-            writer.writeEndElement(); // End LEAF
+    public void writeToXML(String filePath) throws IOException {
+        writeToXML(filePath, false);
+    }
+
+    // compact leaves out the line breaks and indentation
+    public void writeToXML(String filePath, boolean compact) throws IOException {
+        try (Writer out = new FileWriter(filePath)) {
+            writeToXML(out, compact);
         }
+    }
+
+    // Writes the tree to out and flushes it; the caller closes out
+    public void writeToXML(Writer out) throws IOException {
+        writeToXML(out, false);
+    }
 
-        indentLevel--;
-        indent(writer);
-        writer.writeEndElement(); // End LEAFNODES
+    public void writeToXML(Writer out, boolean compact) throws IOException {
+        new ParseTreeXmlWriter(out, compact).write(this);
+    }
+
+    // Compact binary form of the tree, read back with ParseTreeBinaryReader
+    public void writeToBinary(String filePath) throws IOException {
+        try (OutputStream out = new FileOutputStream(filePath)) {
+            writeToBinary(out);
+        }
+    }
 
-        indentLevel--;
-        indent(writer);
-        writer.writeEndElement(); // End SYNTREE
-        writer.writeEndDocument();
-        writer.close();
+    // Writes the tree to out and flushes it; the caller closes out
+    public void writeToBinary(OutputStream out) throws IOException {
+        new ParseTreeBinaryWriter(out).write(this);
     }
-}
\ No newline at end of file
+}
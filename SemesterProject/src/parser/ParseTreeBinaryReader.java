@@ -0,0 +1,229 @@
+package parser;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import lexer.Token;
+
+/**
+ * Restores a parse tree written by {@link ParseTreeBinaryWriter}. Files are memory-mapped
+ * and decoded in place. Nodes keep their unids, so writing the restored tree as XML gives
+ * the same SYNTREE document as the original.
+ *
+ * Input is not trusted: counts, indexes and unids are checked against the file before
+ * anything is allocated for them, and any corruption is reported as an IOException.
+ */
+public class ParseTreeBinaryReader {
+    private static final Token.TokenType[] TOKEN_TYPES = Token.TokenType.values();
+
+    static {
+        ParserInitializer.getGrammar(); // interns every grammar symbol, so readSymbol can find them
+    }
+
+    private final ByteBuffer input;
+
+    public ParseTreeBinaryReader(ByteBuffer input) {
+        this.input = input;
+    }
+
+    public static ParseTree read(String filePath) throws IOException {
+        return read(Paths.get(filePath));
+    }
+
+    public static ParseTree read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new ParseTreeBinaryReader(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())).read();
+        }
+    }
+
+    public ParseTree read() throws IOException {
+        try {
+            return readTree();
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Binary parse tree is truncated", e);
+        }
+    }
+
+    private ParseTree readTree() throws IOException {
+        for (byte expected : ParseTreeBinaryWriter.MAGIC) {
+            if (input.get() != expected) {
+                throw new IOException("Not a binary parse tree");
+            }
+        }
+        int version = input.get();
+        if (version != ParseTreeBinaryWriter.VERSION) {
+            throw new IOException("Unsupported binary parse tree version: " + version);
+        }
+
+        String[] strings = new String[readCount("string")];
+        for (int i = 0; i < strings.length; i++) {
+            byte[] bytes = new byte[readCount("string byte")];
+            input.get(bytes);
+            strings[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        // Children may come after their parent, so links are made once every node exists.
+        // Unids run from 1 to nodeCount, which keeps the tree's unid index as small as the file.
+        int nodeCount = readCount("node");
+        TreeNode[] nodes = new TreeNode[nodeCount];
+        int[][] childIds = new int[nodeCount][];
+        ParseTree tree = new ParseTree();
+        for (int i = 0; i < nodeCount; i++) {
+            int kind = readVarint();
+            int unid = readVarint();
+            if (unid < 1 || unid > nodeCount || tree.getNode(unid) != null) {
+                throw new IOException("Bad or repeated unid " + unid + " for node " + i + " of " + nodeCount);
+            }
+            switch (kind) {
+                case ParseTreeBinaryWriter.ROOT: {
+                    if (tree.getRoot() != null) {
+                        throw new IOException("Second root node " + unid);
+                    }
+                    RootNode node = new RootNode(unid, GrammarSymbols.name(readSymbol(strings)));
+                    tree.setRoot(node);
+                    nodes[i] = node;
+                    childIds[i] = readChildIds();
+                    break;
+                }
+                case ParseTreeBinaryWriter.INNER: {
+                    InnerNode node = new InnerNode(unid, readSymbol(strings));
+                    tree.addInnerNode(node);
+                    nodes[i] = node;
+                    childIds[i] = readChildIds();
+                    break;
+                }
+                case ParseTreeBinaryWriter.LEAF: {
+                    int type = readVarint();
+                    if (type > TOKEN_TYPES.length) {
+                        throw new IOException("Unknown token type " + type + " for node " + unid);
+                    }
+                    Token token = new Token(type == 0 ? null : TOKEN_TYPES[type - 1], readString(strings));
+                    LeafNode node = new LeafNode(unid, token);
+                    tree.addLeafNode(node);
+                    nodes[i] = node;
+                    break;
+                }
+                default:
+                    throw new IOException("Unknown node kind " + kind + " for node " + unid);
+            }
+        }
+        if (tree.getRoot() == null) {
+            throw new IOException("Binary parse tree has no root node");
+        }
+        if (input.hasRemaining()) {
+            throw new IOException(input.remaining() + " unexpected bytes after the last node");
+        }
+
+        // Every node but the root is the child of exactly one node
+        boolean[] linked = new boolean[nodeCount + 1];
+        linked[tree.getRoot().getUnid()] = true;
+        for (int i = 0; i < nodeCount; i++) {
+            if (childIds[i] != null && childIds[i].length > 0) {
+                TreeNode[] children = new TreeNode[childIds[i].length];
+                for (int c = 0; c < children.length; c++) {
+                    int childId = childIds[i][c];
+                    children[c] = tree.getNode(childId);
+                    if (children[c] == null || linked[childId]) {
+                        throw new IOException("Node " + nodes[i].getUnid() + " has unknown or shared child " + childId);
+                    }
+                    linked[childId] = true;
+                }
+                nodes[i].setChildren(children);
+            }
+        }
+        checkReachable(tree, nodes, childIds);
+        return tree;
+    }
+
+    // One parent per node still allows cycles and orphans away from the root, so every node must be
+    // visited exactly once walking down from the root
+    private static void checkReachable(ParseTree tree, TreeNode[] nodes, int[][] childIds) throws IOException {
+        int[] indexOfUnid = new int[nodes.length + 1];
+        for (int i = 0; i < nodes.length; i++) {
+            indexOfUnid[nodes[i].getUnid()] = i;
+        }
+        boolean[] visited = new boolean[nodes.length + 1];
+        int[] pending = new int[nodes.length];
+        int depth = 0;
+        int visitedCount = 0;
+        pending[depth++] = tree.getRoot().getUnid();
+        while (depth > 0) {
+            int unid = pending[--depth];
+            if (visited[unid]) {
+                throw new IOException("Node " + unid + " is reached twice from the root");
+            }
+            visited[unid] = true;
+            visitedCount++;
+            int[] children = childIds[indexOfUnid[unid]];
+            if (children != null) {
+                for (int childId : children) {
+                    pending[depth++] = childId; // every unid is pushed at most once, as nobody's child names the root
+                }
+            }
+        }
+        if (visitedCount != nodes.length) {
+            for (int unid = 1; unid < visited.length; unid++) {
+                if (!visited[unid]) {
+                    throw new IOException("Node " + unid + " is not reachable from the root");
+                }
+            }
+        }
+    }
+
+    private int[] readChildIds() throws IOException {
+        int[] ids = new int[readCount("child")];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = readVarint();
+        }
+        return ids;
+    }
+
+    // Symbols must already belong to the grammar; names from the file are never interned
+    private int readSymbol(String[] strings) throws IOException {
+        String symbol = readString(strings);
+        int id = GrammarSymbols.lookup(symbol);
+        if (id < 0) {
+            throw new IOException("Unknown grammar symbol " + symbol);
+        }
+        return id;
+    }
+
+    private String readString(String[] strings) throws IOException {
+        int index = readVarint();
+        if (index >= strings.length) {
+            throw new IOException("String index " + index + " is outside the table of " + strings.length);
+        }
+        return strings[index];
+    }
+
+    // Every counted item takes at least one byte, so a count larger than what is left is corrupt
+    private int readCount(String what) throws IOException {
+        int count = readVarint();
+        if (count > input.remaining()) {
+            throw new IOException("Bad " + what + " count " + count + " with " + input.remaining() + " bytes left");
+        }
+        return count;
+    }
+
+    // An unsigned varint of at most five bytes that fits in a non-negative int
+    private int readVarint() throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = input.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                if (value < 0 || (shift == 28 && (b & 0x70) != 0)) {
+                    throw new IOException("Varint out of range");
+                }
+                return value;
+            }
+        }
+        throw new IOException("Varint longer than five bytes");
+    }
+}
@@ -0,0 +1,154 @@
+package parser;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import lexer.Token;
+
+/**
+ * Writes any {@link ParseTreeView} in the compact binary form that {@link ParseTreeBinaryReader}
+ * reads back. It holds the same information as the SYNTREE XML plus each leaf's token type:
+ *
+ *   magic "SYNT", version byte
+ *   string table: count, then per string its UTF-8 length and bytes
+ *   node count, then per node in XML order (root, inner nodes, leaf nodes, by unid):
+ *     kind (0 root, 1 inner, 2 leaf), unid
+ *     root and inner: symbol string, child count, child unids
+ *     leaf: token type ordinal + 1 (0 for none), value string
+ *
+ * All numbers are unsigned varints and strings are indexes into the table. Unids run from
+ * 1 to the node count and symbols must be names from the grammar. Parents are not stored;
+ * they follow from the children lists.
+ */
+public class ParseTreeBinaryWriter {
+    static final byte[] MAGIC = { 'S', 'Y', 'N', 'T' };
+    static final int VERSION = 1;
+    static final int ROOT = 0;
+    static final int INNER = 1;
+    static final int LEAF = 2;
+    private static final int BUFFER_SIZE = 8192;
+
+    private final OutputStream out;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int length;
+    private final Map<String, Integer> stringIds = new HashMap<>();
+    private final List<String> strings = new ArrayList<>();
+
+    public ParseTreeBinaryWriter(OutputStream out) {
+        this.out = out;
+    }
+
+    // Writes the whole tree and flushes the underlying stream; the caller closes it
+    public void write(ParseTreeView tree) throws IOException {
+        int root = tree.getRootId();
+        collectStrings(tree);
+
+        append(MAGIC);
+        appendByte(VERSION);
+        appendVarint(strings.size());
+        for (String string : strings) {
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            appendVarint(bytes.length);
+            append(bytes);
+        }
+
+        appendVarint(tree.getNodeCount());
+        appendVarint(ROOT);
+        appendVarint(root);
+        appendVarint(stringIds.get(tree.getSymbol(root)));
+        appendChildren(tree, root);
+        for (int unid = 1; unid <= tree.getNodeCount(); unid++) {
+            if (unid != root && !tree.isLeaf(unid)) {
+                appendVarint(INNER);
+                appendVarint(unid);
+                appendVarint(stringIds.get(tree.getSymbol(unid)));
+                appendChildren(tree, unid);
+            }
+        }
+        for (int unid = 1; unid <= tree.getNodeCount(); unid++) {
+            if (tree.isLeaf(unid)) {
+                Token.TokenType type = tree.getTokenType(unid);
+                appendVarint(LEAF);
+                appendVarint(unid);
+                appendVarint(type == null ? 0 : type.ordinal() + 1);
+                appendVarint(stringIds.get(tree.getTokenValue(unid)));
+            }
+        }
+        flush();
+    }
+
+    // Symbols and terminal values, each stored once in order of first use
+    private void collectStrings(ParseTreeView tree) {
+        addString(tree.getSymbol(tree.getRootId()));
+        for (int unid = 1; unid <= tree.getNodeCount(); unid++) {
+            if (unid != tree.getRootId() && !tree.isLeaf(unid)) {
+                addString(tree.getSymbol(unid));
+            }
+        }
+        for (int unid = 1; unid <= tree.getNodeCount(); unid++) {
+            if (tree.isLeaf(unid)) {
+                addString(tree.getTokenValue(unid));
+            }
+        }
+    }
+
+    private void addString(String string) {
+        if (stringIds.putIfAbsent(string, strings.size()) == null) {
+            strings.add(string);
+        }
+    }
+
+    private void appendChildren(ParseTreeView tree, int unid) throws IOException {
+        appendVarint(tree.getChildCount(unid));
+        for (int i = 0; i < tree.getChildCount(unid); i++) {
+            appendVarint(tree.getChildId(unid, i));
+        }
+    }
+
+    // Hands everything written so far to the underlying stream
+    public void flush() throws IOException {
+        out.write(buffer, 0, length);
+        length = 0;
+        out.flush();
+    }
+
+    private void appendVarint(int value) throws IOException {
+        if (length + 5 > buffer.length) {
+            drain();
+        }
+        while ((value & ~0x7F) != 0) {
+            buffer[length++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[length++] = (byte) value;
+    }
+
+    private void appendByte(int value) throws IOException {
+        if (length == buffer.length) {
+            drain();
+        }
+        buffer[length++] = (byte) value;
+    }
+
+    private void append(byte[] bytes) throws IOException {
+        if (length + bytes.length > buffer.length) {
+            drain();
+            if (bytes.length > buffer.length) {
+                out.write(bytes);
+                return;
+            }
+        }
+        System.arraycopy(bytes, 0, buffer, length, bytes.length);
+        length += bytes.length;
+    }
+
+    private void drain() throws IOException {
+        out.write(buffer, 0, length);
+        length = 0;
+    }
+}
@@ -0,0 +1,37 @@
+package parser;
+
+import lexer.Token;
+
+/**
+ * Read access to a parse tree by unid, so the later phases and the writers work the same
+ * on a {@link ParseTree} and a {@link CompactParseTree}. Unids run from 1 to
+ * getNodeCount(); the root is a non-leaf like the inner nodes, and symbols are
+ * {@link GrammarSymbols} ids. Children come in the order the parser pops them.
+ */
+public interface ParseTreeView {
+    int getRootId();
+
+    // Root, inner and leaf nodes together
+    int getNodeCount();
+
+    boolean isLeaf(int unid);
+
+    // GrammarSymbols id of a root or inner node
+    int getSymbolId(int unid);
+
+    // Unid of the parent, 0 for the root
+    int getParentId(int unid);
+
+    int getChildCount(int unid);
+
+    int getChildId(int unid, int index);
+
+    // Type of a leaf's token, null if it has none
+    Token.TokenType getTokenType(int unid);
+
+    String getTokenValue(int unid);
+
+    default String getSymbol(int unid) {
+        return GrammarSymbols.name(getSymbolId(unid));
+    }
+}
@@ -0,0 +1,138 @@
+package parser;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import output.XmlSink;
+
+/**
+ * Writes the SYNTREE XML for any {@link ParseTreeView} in one pass over its nodes,
+ * through a buffered {@link XmlSink}. Indentation comes from a fixed table of strings;
+ * in compact mode no line breaks or indentation are written at all.
+ */
+public class ParseTreeXmlWriter {
+    private static final String[] INDENTS = indents(4); // ID inside IN's CHILDREN is the deepest level
+
+    private final XmlSink out;
+    private final boolean compact;
+
+    public ParseTreeXmlWriter(Writer out) {
+        this(out, false);
+    }
+
+    public ParseTreeXmlWriter(Writer out, boolean compact) {
+        this.out = new XmlSink(out);
+        this.compact = compact;
+    }
+
+    // Writes the whole tree and flushes the underlying writer; the caller closes it. Inner and
+    // leaf nodes are listed in unid order, which is the order the parser created them in.
+    public void write(ParseTreeView tree) throws IOException {
+        out.append("<SYNTREE>");
+
+        // Write ROOT
+        int root = tree.getRootId();
+        indent(1);
+        out.append("<ROOT>");
+        indent(2);
+        out.append("<UNID>");
+        out.appendInt(root);
+        out.append("</UNID>");
+        indent(2);
+        out.append("<SYMB>");
+        out.appendEscaped(tree.getSymbol(root));
+        out.append("</SYMB>");
+        writeChildren(tree, root, 2);
+        indent(1);
+        out.append("</ROOT>");
+
+        // Write INNERNODES
+        indent(1);
+        out.append("<INNERNODES>");
+        for (int unid = 1; unid <= tree.getNodeCount(); unid++) {
+            if (unid == root || tree.isLeaf(unid)) {
+                continue;
+            }
+            indent(2);
+            out.append("<IN>");
+            writeParentAndUnid(tree.getParentId(unid), unid);
+            indent(3);
+            out.append("<SYMB>");
+            out.appendEscaped(tree.getSymbol(unid));
+            out.append("</SYMB>");
+            writeChildren(tree, unid, 3);
+            indent(2);
+            out.append("</IN>");
+        }
+        indent(1);
+        out.append("</INNERNODES>");
+
+        // Write LEAFNODES
+        indent(1);
+        out.append("<LEAFNODES>");
+        for (int unid = 1; unid <= tree.getNodeCount(); unid++) {
+            if (!tree.isLeaf(unid)) {
+                continue;
+            }
+            indent(2);
+            out.append("<LEAF>");
+            writeParentAndUnid(tree.getParentId(unid), unid);
+            indent(3);
+            out.append("<TERMINAL>");
+            out.appendEscaped(tree.getTokenValue(unid));
+            out.append("</TERMINAL>");
+            indent(2);
+            out.append("</LEAF>");
+        }
+        indent(1);
+        out.append("</LEAFNODES>");
+
+        indent(0);
+        out.append("</SYNTREE>");
+        flush();
+    }
+
+    private void writeParentAndUnid(int parentId, int unid) throws IOException {
+        indent(3);
+        out.append("<PARENT>");
+        out.appendInt(parentId);
+        out.append("</PARENT>");
+        indent(3);
+        out.append("<UNID>");
+        out.appendInt(unid);
+        out.append("</UNID>");
+    }
+
+    private void writeChildren(ParseTreeView tree, int unid, int level) throws IOException {
+        indent(level);
+        out.append("<CHILDREN>");
+        for (int i = 0; i < tree.getChildCount(unid); i++) {
+            indent(level + 1);
+            out.append("<ID>");
+            out.appendInt(tree.getChildId(unid, i));
+            out.append("</ID>");
+        }
+        indent(level);
+        out.append("</CHILDREN>");
+    }
+
+    // Hands everything written so far to the underlying writer
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    private void indent(int level) throws IOException {
+        if (!compact) {
+            out.append(INDENTS[level]);
+        }
+    }
+
+    // A line break followed by two spaces per level
+    private static String[] indents(int deepest) {
+        String[] indents = new String[deepest + 1];
+        for (int level = 0; level <= deepest; level++) {
+            indents[level] = "\n" + "  ".repeat(level);
+        }
+        return indents;
+    }
+}
@@ -2,223 +2,388 @@ package parser;
 
 import lexer.Token;
 import lexer.Token.TokenType;
-import org.w3c.dom.*;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.DocumentBuilder;
-import java.io.File;
+import lexer.TokenScanner;
+import lexer.TokenSource;
+import lexer.XmlTokenSource;
+import output.Artifact;
+import output.OutputLayout;
+import util.Trace;
+import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Writer;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Stack;
 
 public class Parser {
     private List<Token> tokens; // The list of tokens
-    private Stack<Integer> stateStack = new Stack<>();
-    private Stack<String> symbolStack = new Stack<>();
+    private int[] stateStack = new int[64];
+    private int stateDepth;
+    private int[] symbolStack = new int[64]; // GrammarSymbols ids
+    private int symbolDepth;
 
     private ParseTree parseTree;
+    private OutputLayout outputLayout; // null writes to parser_output/parse_tree.xml
+    private String inputName;
+    private boolean compactTreeXml; // no line breaks or indentation in the parse tree XML
+    private boolean accepted;
+    private long shiftCount;
+    private long reduceCount;
     private Stack<TreeNode> nodeStack;
-
-    private ParsingTable parsingTable;
+    private CompactParseTree compactTree; // built instead of parseTree after useCompactTree()
+    private int[] compactStack;
+    private int compactDepth;
+    private int[] compactChildren = new int[8]; // reused by every reduction, setChildren copies out of it
+
+    private final ParsingTable parsingTable;
+    private final Grammar grammar;
+    private final int[] gotoIds; // GOTO column of each rule's LHS, by rule number
+    private final int[] terminalIds; // ACTION column by TokenType ordinal, or BY_VALUE
+    private static final int BY_VALUE = -2; // keywords and BINOP are looked up by their value
+    private final int[] lexemeTerminalIds; // ACTION column by TokenScanner lexeme id
+    private final int[] tokenSymbolIds; // GrammarSymbols id of each TokenType's name
 
     public Parser() {
         this.tokens = new ArrayList<>();
-        this.stateStack.push(0); // Initial state
-        this.parsingTable = ParserInitializer.initializeParsingTable();
+        pushState(0); // Initial state
+        this.parsingTable = ParserInitializer.getParsingTable();
+        this.grammar = ParserInitializer.getGrammar();
+        this.gotoIds = new int[grammar.size()];
+        for (int i = 0; i < gotoIds.length; i++) {
+            gotoIds[i] = parsingTable.getNonterminalId(grammar.getRule(i).getLhs());
+        }
+        this.terminalIds = new int[TokenType.values().length];
+        for (TokenType type : TokenType.values()) {
+            terminalIds[type.ordinal()] = isLookedUpByValue(type) ? BY_VALUE
+                    : parsingTable.getTerminalId(getTableSymbol(new Token(type, null)));
+        }
+        TokenScanner scanner = TokenScanner.getInstance();
+        this.lexemeTerminalIds = new int[scanner.getLexemeCount()];
+        for (int i = 0; i < lexemeTerminalIds.length; i++) {
+            lexemeTerminalIds[i] = parsingTable.getTerminalId(scanner.getLexeme(i));
+        }
+        this.tokenSymbolIds = new int[TokenType.values().length];
+        for (TokenType type : TokenType.values()) {
+            tokenSymbolIds[type.ordinal()] = GrammarSymbols.intern(type.name());
+        }
 
         this.parseTree = new ParseTree();
         this.nodeStack = new Stack<>();
 
-        // Create root node with your grammar's start symbol
-        RootNode root = new RootNode("PROG'"); // Replace with your start symbol
-        parseTree.setRoot(root);
+        // Create root node with the grammar's start symbol; node ids are numbered per tree
+        parseTree.createRoot("PROG'");
     }
 
-    public void readTokensFromXML(String xmlPath) {
-        try {
-            File file = new File(xmlPath);
-
-            DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
-            DocumentBuilder dBuilder = dbFactory.newDocumentBuilder();
-            Document doc = dBuilder.parse(file);
-
-            doc.getDocumentElement().normalize();
-
-            NodeList tokenNodes = doc.getElementsByTagName("TOK");
-            System.out.println("======================");
-            System.out.println("\nNumber of tokens: " + tokenNodes.getLength());
-
-            for (int i = 0; i < tokenNodes.getLength(); i++) {
-                Node tokenNode = tokenNodes.item(i);
-                if (tokenNode.getNodeType() == Node.ELEMENT_NODE) {
-                    Element element = (Element) tokenNode;
-
-                    String tokenClass = element.getElementsByTagName("CLASS").item(0).getTextContent();
-                    String tokenValue = element.getElementsByTagName("WORD").item(0).getTextContent();
-
-                    TokenType tokenType;
-                    try {
-                        tokenType = TokenType.valueOf(tokenClass.toUpperCase());
-                    } catch (IllegalArgumentException e) {
-                        // Handle case where the token class in XML doesn't match the enum values
-                        System.err.println("Unknown token class: " + tokenClass);
-                        continue;
-                    }
+    // Takes the tokens straight from the Lexer, skipping the XML round trip
+    public void setTokens(List<Token> tokens) {
+        this.tokens = new ArrayList<>(tokens);
+        Trace.trace("======================");
+        Trace.trace("\nNumber of tokens: " + this.tokens.size());
+    }
 
-                    Token token = new Token(tokenType, tokenValue);
-                    tokens.add(token); // Add the token to the list in the parser
-                }
+    // Appends the tokens of a TOKENSTREAM XML file; parseTokens(new XmlTokenSource(path)) parses without keeping them
+    public void readTokensFromXML(String xmlPath) {
+        try (XmlTokenSource source = new XmlTokenSource(xmlPath)) {
+            int count = 0;
+            Token token;
+            while ((token = source.nextToken()) != null) {
+                tokens.add(token); // Add the token to the list in the parser
+                count++;
             }
+            Trace.trace("======================");
+            Trace.trace("\nNumber of tokens: " + count);
         } catch (Exception e) {
             e.printStackTrace();
         }
     }
 
+    // The object tree; after useCompactTree() each call converts the compact tree, so prefer getTree()
     public ParseTree getParseTree() {
-        return parseTree;
+        return compactTree != null ? compactTree.toParseTree() : parseTree;
     }
 
-    public void parseTokens() throws IOException {
-        System.out.println("Starting Parsing...");
-        int tokenIndex = 0;
+    // Whichever tree this parser builds, without converting it
+    public ParseTreeView getTree() {
+        return compactTree != null ? compactTree : parseTree;
+    }
+
+    // Write the parse tree through the layout on accept instead of to parser_output/parse_tree.xml
+    public void setOutputLayout(OutputLayout outputLayout, String inputName) {
+        this.outputLayout = outputLayout;
+        this.inputName = inputName;
+    }
+
+    // Builds a CompactParseTree instead of the object tree; call before parsing
+    public void useCompactTree() {
+        compactTree = new CompactParseTree();
+        compactTree.addRoot(parseTree.getRoot().getStartSymbol());
+        compactStack = new int[64];
+        compactDepth = 0;
+    }
+
+    // The tree built after useCompactTree(), or null
+    public CompactParseTree getCompactParseTree() {
+        return compactTree;
+    }
 
-        while (tokenIndex < tokens.size()) {
-            Token currentToken = tokens.get(tokenIndex);
-            int currentState = stateStack.peek();
+    public void setCompactTreeXml(boolean compactTreeXml) {
+        this.compactTreeXml = compactTreeXml;
+    }
 
-            // Get the action from the parsing table
-            String action = getActionForToken(currentState, currentToken);
-            System.out
-                    .println("\nCurrent State: " + currentState + ", Current Token: " + currentToken + ", Action: " + action);
+    // True once parseTokens has reached the accept action
+    public boolean isAccepted() {
+        return accepted;
+    }
+
+    public long getShiftCount() {
+        return shiftCount;
+    }
 
-            if (action == null) {
+    public long getReduceCount() {
+        return reduceCount;
+    }
+
+    public void parseTokens() throws IOException {
+        Iterator<Token> remaining = tokens.iterator();
+        parseTokens(() -> remaining.hasNext() ? remaining.next() : null);
+    }
+
+    // Pulls tokens from the source one shift at a time, so lexing and parsing interleave
+    public void parseTokens(TokenSource source) throws IOException {
+        Trace.trace("Starting Parsing...");
+        boolean tracing = Trace.isTracing();
+        Token currentToken = source.nextToken();
+
+        while (currentToken != null) {
+            int currentState = stateStack[stateDepth - 1];
+
+            // Get the packed action from the parsing table
+            int action = parsingTable.action(currentState, getTerminalId(currentToken));
+            int actionKind = ParsingTable.actionKind(action);
+            if (tracing) {
+                System.out.println("\nCurrent State: " + currentState + ", Current Token: " + currentToken + ", Action: "
+                        + ParsingTable.decodeAction(action));
+            }
+
+            if (actionKind == ParsingTable.ERROR) {
                 System.err.println("Syntax error at token: " + currentToken);
                 return;
             }
 
-            if (action.startsWith("s")) { // Shift action
-                int nextState = Integer.parseInt(action.substring(1)); // Get the state to shift to
-                System.out.println("Action: Shift to state " + nextState + " with token '" + currentToken.getValue() + "'");
+            if (actionKind == ParsingTable.SHIFT) { // Shift action
+                int nextState = ParsingTable.actionValue(action); // Get the state to shift to
+                if (tracing) {
+                    System.out.println("Action: Shift to state " + nextState + " with token '" + currentToken.getValue() + "'");
+                }
 
-                LeafNode leafNode = new LeafNode(currentToken);
-                parseTree.addLeafNode(leafNode);
-                nodeStack.push(leafNode);
+                shiftCount++;
+                if (compactTree != null) {
+                    pushCompact(compactTree.addLeaf(currentToken));
+                } else {
+                    nodeStack.push(parseTree.createLeafNode(currentToken));
+                }
 
                 // Push the current token's type (terminal) onto the symbol stack
-                symbolStack.push(currentToken.getType().name());
-                stateStack.push(nextState); // Push the new state onto the state stack
-                tokenIndex++; // Move to the next token
-            } else if (action.startsWith("r")) { // Reduce action
-                int ruleNumber = Integer.parseInt(action.substring(1)); // Get the rule number for reduction
-                System.out.println("Action: Reduce using rule " + ruleNumber);
+                pushSymbol(tokenSymbolIds[currentToken.getType().ordinal()]);
+                pushState(nextState); // Push the new state onto the state stack
+                currentToken = source.nextToken(); // Move to the next token
+            } else if (actionKind == ParsingTable.REDUCE) { // Reduce action
+                int ruleNumber = ParsingTable.actionValue(action); // Get the rule number for reduction
+                if (tracing) {
+                    System.out.println("Action: Reduce using rule " + ruleNumber);
+                }
 
+                reduceCount++;
                 reduceAction(ruleNumber); // Call the reduce function
 
-                // Optionally, you can print the current state and stack contents after each
-                // reduction
-                printStack();
-            } else if (action.equals("acc")) { // Accept action
-                System.out.println("Parsing successful! Input fully parsed.");
-                if (!nodeStack.isEmpty()) {
-                    TreeNode lastNode = nodeStack.peek();
-                    parseTree.getRoot().addChildId(lastNode.getUnid());
-                    lastNode.setParentId(parseTree.getRoot().getUnid());
+                // Print the current state and stack contents after each reduction when tracing
+                if (tracing) {
+                    printStack();
+                }
+            } else { // Accept action
+                Trace.summary("Parsing successful! Input fully parsed.");
+                accepted = true;
+                if (compactTree != null) {
+                    if (compactDepth > 0) {
+                        compactTree.setChildren(compactTree.getRoot(), new int[] { compactStack[compactDepth - 1] }, 1);
+                    }
+                } else if (!nodeStack.isEmpty()) {
+                    parseTree.getRoot().setChildren(new TreeNode[] { nodeStack.peek() });
                 }
 
                 try {
-                    parseTree.writeToXML("parser_output/parse_tree.xml");
-                    System.out.println("Parse tree written to parser_output/parse_tree.xml");
-                } catch (Exception e) {
-                    System.err.println("Error writing parse tree to XML: " + e.getMessage());
-                    e.printStackTrace();
+                    if (outputLayout == null) {
+                        try (Writer out = new FileWriter("parser_output/parse_tree.xml")) {
+                            writeTreeXml(out);
+                        }
+                        Trace.summary("Parse tree written to parser_output/parse_tree.xml");
+                    } else {
+                        try (Writer out = outputLayout.open(inputName, Artifact.PARSE_TREE)) {
+                            writeTreeXml(out);
+                        }
+                        Trace.summary("Parse tree written to " + outputLayout.describe(inputName, Artifact.PARSE_TREE));
+                    }
+                } catch (IOException e) {
+                    // The input was accepted, but the caller has to know its parse tree is missing
+                    throw new IOException("Error writing parse tree to XML: " + e.getMessage(), e);
                 }
                 return;
             }
         }
     }
 
+    private void writeTreeXml(Writer out) throws IOException {
+        if (compactTree != null) {
+            compactTree.writeToXML(out, compactTreeXml);
+        } else {
+            parseTree.writeToXML(out, compactTreeXml);
+        }
+    }
+
     private void printStack() {
         System.out.println("\n--- Stack Status ---");
-        System.out.println("State Stack: " + stateStack);
-        System.out.println("Symbol Stack: " + symbolStack);
+        StringBuilder states = new StringBuilder("[");
+        for (int i = 0; i < stateDepth; i++) {
+            states.append(i == 0 ? "" : ", ").append(stateStack[i]);
+        }
+        System.out.println("State Stack: " + states.append(']'));
+        StringBuilder symbols = new StringBuilder("[");
+        for (int i = 0; i < symbolDepth; i++) {
+            symbols.append(i == 0 ? "" : ", ").append(GrammarSymbols.name(symbolStack[i]));
+        }
+        System.out.println("Symbol Stack: " + symbols.append(']'));
         System.out.println("--------------------\n");
     }
 
     public void reduceAction(int ruleNumber) {
-        GrammarRule rule = ParserInitializer.initializeGrammarRules().get(ruleNumber);
+        GrammarRule rule = grammar.getRule(ruleNumber);
         String lhs = rule.getLhs(); // Get LHS of the reduction rule
         int rhsSize = rule.getRhs().size(); // Get RHS size
 
-        System.out.println("Reduce action: " + lhs + " -> " + rule.getRhs());
-
-        // Create new inner node for this reduction
-        InnerNode newNode = new InnerNode(lhs);
-        parseTree.addInnerNode(newNode);
+        if (Trace.isTracing()) {
+            System.out.println("Reduce action: " + lhs + " -> " + rule.getRhs());
+        }
 
-        // Pop the number of symbols and states from the stack according to the RHS size
-        List<TreeNode> children = new ArrayList<>();
-        for (int i = 0; i < rhsSize; i++) {
-            if (!nodeStack.isEmpty()) {
-                TreeNode child = nodeStack.pop();
-                child.setParentId(newNode.getUnid());
-                newNode.addChildId(child.getUnid());
-                children.add(0, child);
+        // Create new inner node for this reduction and pop its children, at most one per RHS symbol
+        if (compactTree != null) {
+            int newNode = compactTree.addInner(rule.getLhsId());
+            int childCount = Math.min(rhsSize, compactDepth);
+            if (compactChildren.length < childCount) {
+                compactChildren = new int[childCount];
+            }
+            for (int i = 0; i < childCount; i++) {
+                compactChildren[i] = compactStack[--compactDepth];
+            }
+            compactTree.setChildren(newNode, compactChildren, childCount);
+            pushCompact(newNode);
+        } else {
+            InnerNode newNode = parseTree.createInnerNode(rule.getLhsId());
+            TreeNode[] children = new TreeNode[rhsSize];
+            int childCount = 0;
+            while (childCount < rhsSize && !nodeStack.isEmpty()) {
+                children[childCount++] = nodeStack.pop();
             }
+            newNode.setChildren(childCount == rhsSize ? children : Arrays.copyOf(children, childCount));
+            nodeStack.push(newNode);
         }
 
+        // Pop the number of symbols and states from the stack according to the RHS size
         for (int i = 0; i < rhsSize; i++) {
-            symbolStack.pop(); // Pop the symbols
-            stateStack.pop(); // Pop the states
+            symbolDepth--; // Pop the symbols
+            stateDepth--; // Pop the states
         }
 
         // Push the LHS onto the symbol stack
-        symbolStack.push(lhs);
-
-        nodeStack.push(newNode);
+        pushSymbol(rule.getLhsId());
 
         // Find the new state using the GOTO table
-        int currentState = stateStack.peek();
-        Integer nextState = parsingTable.getGoto(currentState, lhs);
+        int currentState = stateStack[stateDepth - 1];
+        int nextState = parsingTable.gotoState(currentState, gotoIds[ruleNumber]);
 
-        if (nextState == null) {
+        if (nextState < 0) {
             System.err.println("Syntax error: GOTO not found for state " + currentState + " and LHS " + lhs);
             return;
         }
 
         // Push the new state onto the state stack
-        stateStack.push(nextState);
+        pushState(nextState);
+    }
+
+    private void pushState(int state) {
+        if (stateDepth == stateStack.length) {
+            stateStack = Arrays.copyOf(stateStack, stateDepth * 2);
+        }
+        stateStack[stateDepth++] = state;
+    }
+
+    private void pushSymbol(int symbol) {
+        if (symbolDepth == symbolStack.length) {
+            symbolStack = Arrays.copyOf(symbolStack, symbolDepth * 2);
+        }
+        symbolStack[symbolDepth++] = symbol;
+    }
+
+    private void pushCompact(int node) {
+        if (compactDepth == compactStack.length) {
+            compactStack = Arrays.copyOf(compactStack, compactDepth * 2);
+        }
+        compactStack[compactDepth++] = node;
     }
 
     public String getActionForToken(int currentState, Token token) {
+        return parsingTable.getAction(currentState, getTableSymbol(token));
+    }
+
+    // Same as parsingTable.getTerminalId(getTableSymbol(token)); only tokens built without a lexeme id are hashed
+    private int getTerminalId(Token token) {
+        int id = terminalIds[token.getType().ordinal()];
+        if (id != BY_VALUE) {
+            return id;
+        }
+        int lexeme = token.getLexemeId();
+        return lexeme >= 0 ? lexemeTerminalIds[lexeme] : parsingTable.getTerminalId(token.getValue());
+    }
+
+    // The column of the parsing table a token is looked up under
+    private static String getTableSymbol(Token token) {
         // Reserved keywords and terminal symbols should use their value directly
         if (token.getType() == TokenType.INPUT_OPERATOR) {
-            return parsingTable.getAction(currentState, "<");
+            return "<";
         }
         if (token.getType() == TokenType.STRING) {
-            return parsingTable.getAction(currentState, "T");
+            return "T";
         }
         if (token.getType() == TokenType.NUMBER) {
-            return parsingTable.getAction(currentState, "N");
+            return "N";
         }
         if (token.getType() == TokenType.PROLOG) {
-            return parsingTable.getAction(currentState, "{");
+            return "{";
         }
         if (token.getType() == TokenType.EPILOG) {
-            return parsingTable.getAction(currentState, "}");
-        }
-        if (token.getType() == TokenType.MAIN || token.getType() == TokenType.BEGIN || token.getType() == TokenType.END ||
-                token.getType() == TokenType.PRINT || token.getType() == TokenType.RETURN || token.getType() == TokenType.N
-                || token.getType() == TokenType.COMMA || token.getType() == TokenType.SEMICOLON
-                || token.getType() == TokenType.ASSIGNMENT || token.getType() == TokenType.INPUT
-                || token.getType() == TokenType.BINOP || token.getType() == TokenType.LPAREN
-                || token.getType() == TokenType.RPAREN || token.getType() == TokenType.EOF || token.getType() == TokenType.T
-                || token.getType() == TokenType.SKIP || token.getType() == TokenType.HALT || token.getType() == TokenType.IF
-                || token.getType() == TokenType.ELSE || token.getType() == TokenType.THEN) {
-            return parsingTable.getAction(currentState, token.getValue());
+            return "}";
+        }
+        if (token.getType() == TokenType.EOF) {
+            return "$";
+        }
+        if (isLookedUpByValue(token.getType())) {
+            return token.getValue();
         } else {
             // Use token type for general types like variables, numbers, etc.
-            return parsingTable.getAction(currentState, token.getType().name());
+            return token.getType().name();
         }
     }
 
+    private static boolean isLookedUpByValue(TokenType type) {
+        return type == TokenType.MAIN || type == TokenType.BEGIN || type == TokenType.END
+                || type == TokenType.PRINT || type == TokenType.RETURN || type == TokenType.N
+                || type == TokenType.COMMA || type == TokenType.SEMICOLON
+                || type == TokenType.ASSIGNMENT || type == TokenType.INPUT
+                || type == TokenType.BINOP || type == TokenType.LPAREN
+                || type == TokenType.RPAREN || type == TokenType.T
+                || type == TokenType.SKIP || type == TokenType.HALT || type == TokenType.IF
+                || type == TokenType.ELSE || type == TokenType.THEN;
+    }
+
 }
@@ -9,6 +9,38 @@ import java.util.Collections;
 import java.util.List;
 
 public class ParserInitializer {
+    // Loaded on first use and shared by every Parser in the JVM
+    public static Grammar getGrammar() {
+        return GrammarHolder.GRAMMAR;
+    }
+
+    public static ParsingTable getParsingTable() {
+        return ParsingTableHolder.TABLE;
+    }
+
+    private static class GrammarHolder {
+        static final Grammar GRAMMAR = new Grammar(initializeGrammarRules());
+    }
+
+    private static class ParsingTableHolder {
+        static final ParsingTable TABLE = loadParsingTable().freeze();
+    }
+
+    // Builds the table from the generated ParseTableData class, so startup does no file I/O
+    public static ParsingTable loadParsingTable() {
+        ParsingTable parsingTable = new ParsingTable();
+        int[] actions = ParseTableData.ACTIONS;
+        for (int i = 0; i < actions.length; i += 3) {
+            parsingTable.addAction(actions[i], ParseTableData.TERMINALS[actions[i + 1]],
+                    ParsingTable.decodeAction(actions[i + 2]));
+        }
+        int[] gotos = ParseTableData.GOTOS;
+        for (int i = 0; i < gotos.length; i += 3) {
+            parsingTable.addGoto(gotos[i], ParseTableData.NONTERMINALS[gotos[i + 1]], gotos[i + 2]);
+        }
+        return parsingTable;
+    }
+
     public static List<GrammarRule> initializeGrammarRules() {
         List<GrammarRule> grammarRules = new ArrayList<>();
 
@@ -78,6 +110,7 @@ public class ParserInitializer {
         return grammarRules;
     }
 
+    // Reads Actions_GOTOS.csv from the working directory; the build compiles the same file into ParseTableData
     public static ParsingTable initializeParsingTable() {
         ParsingTable parsingTable = new ParsingTable();
 
@@ -90,7 +123,7 @@ public class ParserInitializer {
 
             while ((line = br.readLine()) != null) {
                 // Handling the case where a symbol might be quoted (like ";")
-                String[] data = parseCsvLine(line, splitBy);
+                String[] data = ParsingTable.parseCsvLine(line, splitBy);
 
                 int state = Integer.parseInt(data[0].trim());
                 String symbol = data[1].trim();
@@ -110,28 +143,4 @@ public class ParserInitializer {
         return parsingTable;
     }
 
-    // Custom method to handle quoted fields in CSV
-    private static String[] parseCsvLine(String line, String delimiter) {
-        List<String> tokens = new ArrayList<>();
-        StringBuilder currentToken = new StringBuilder();
-        boolean inQuotes = false;
-
-        for (char c : line.toCharArray()) {
-            if (c == '"') {
-                inQuotes = !inQuotes; // Toggle the inQuotes flag
-            } else if (c == delimiter.charAt(0) && !inQuotes) {
-                // If not in quotes, split on the delimiter
-                tokens.add(currentToken.toString().trim());
-                currentToken.setLength(0);
-            } else {
-                // Otherwise, append the character to the current token
-                currentToken.append(c);
-            }
-        }
-        // Add the last token
-        tokens.add(currentToken.toString().trim());
-
-        return tokens.toArray(new String[0]);
-    }
-
 }
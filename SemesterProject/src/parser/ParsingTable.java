@@ -1,30 +1,192 @@
 package parser;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 public class ParsingTable {
+    // Packed action codes: the low two bits hold the kind, the rest the state or rule number
+    public static final int ERROR = 0;
+    public static final int SHIFT = 1;
+    public static final int REDUCE = 2;
+    public static final int ACCEPT = 3;
+
     private Map<Integer, Map<String, String>> actionTable = new HashMap<>();
     private Map<Integer, Map<String, Integer>> gotoTable = new HashMap<>();
 
+    // Dense form of the two maps, rebuilt on first lookup after a change
+    private Map<String, Integer> terminalIds;
+    private Map<String, Integer> nonterminalIds;
+    private int[] actions; // [state * terminalCount + terminal] -> packed action
+    private int[] gotos; // [state * nonterminalCount + nonterminal] -> next state, or -1
+    private int stateCount;
+    private boolean frozen;
+
     // Method to add an action (shift, reduce, or accept)
     public void addAction(int state, String symbol, String action) {
+        checkNotFrozen();
         actionTable.computeIfAbsent(state, k -> new HashMap<>()).put(symbol, action);
+        actions = null;
     }
 
     // Method to add a goto entry (for non-terminals)
     public void addGoto(int state, String nonTerminal, int nextState) {
+        checkNotFrozen();
         gotoTable.computeIfAbsent(state, k -> new HashMap<>()).put(nonTerminal, nextState);
+        actions = null;
     }
 
     // Getter for the action table
     public String getAction(int state, String symbol) {
-        return actionTable.getOrDefault(state, new HashMap<>()).get(symbol);
+        Map<String, String> row = actionTable.get(state);
+        return row == null ? null : row.get(symbol);
     }
 
     // Getter for the goto table
     public Integer getGoto(int state, String nonTerminal) {
-        return gotoTable.getOrDefault(state, new HashMap<>()).get(nonTerminal);
+        Map<String, Integer> row = gotoTable.get(state);
+        return row == null ? null : row.get(nonTerminal);
+    }
+
+    // Small int id of a terminal, or -1 if the table never mentions it
+    public int getTerminalId(String symbol) {
+        compile();
+        return terminalIds.getOrDefault(symbol, -1);
+    }
+
+    // Small int id of a non-terminal, or -1 if the table never mentions it
+    public int getNonterminalId(String symbol) {
+        compile();
+        return nonterminalIds.getOrDefault(symbol, -1);
+    }
+
+    // Packed action for a state and terminal id; ERROR when there is no entry
+    public int action(int state, int terminal) {
+        compile();
+        if (terminal < 0 || state < 0 || state >= stateCount) {
+            return ERROR;
+        }
+        return actions[state * terminalIds.size() + terminal];
+    }
+
+    // Next state for a state and non-terminal id, or -1 when there is no entry
+    public int gotoState(int state, int nonterminal) {
+        compile();
+        if (nonterminal < 0 || state < 0 || state >= stateCount) {
+            return -1;
+        }
+        return gotos[state * nonterminalIds.size() + nonterminal];
+    }
+
+    public static int actionKind(int action) {
+        return action & 3;
+    }
+
+    public static int actionValue(int action) {
+        return action >>> 2;
+    }
+
+    // Turns "s5", "r12" or "acc" into a packed action
+    public static int encodeAction(String action) {
+        if (action.equals("acc")) {
+            return ACCEPT;
+        }
+        if (action.startsWith("s")) {
+            return (Integer.parseInt(action.substring(1)) << 2) | SHIFT;
+        }
+        if (action.startsWith("r")) {
+            return (Integer.parseInt(action.substring(1)) << 2) | REDUCE;
+        }
+        throw new IllegalArgumentException("Unknown action: " + action);
+    }
+
+    // Inverse of encodeAction, null for ERROR
+    public static String decodeAction(int action) {
+        switch (actionKind(action)) {
+            case SHIFT:
+                return "s" + actionValue(action);
+            case REDUCE:
+                return "r" + actionValue(action);
+            case ACCEPT:
+                return "acc";
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Compiles the dense tables and makes this table read-only, so it can be
+     * shared by parsers on any number of threads.
+     */
+    public ParsingTable freeze() {
+        if (!frozen) {
+            compile();
+            actionTable = unmodifiable(actionTable);
+            gotoTable = unmodifiable(gotoTable);
+            frozen = true;
+        }
+        return this;
+    }
+
+    private void checkNotFrozen() {
+        if (frozen) {
+            throw new IllegalStateException("Parsing table is shared and can no longer be changed");
+        }
+    }
+
+    private static <V> Map<Integer, Map<String, V>> unmodifiable(Map<Integer, Map<String, V>> table) {
+        Map<Integer, Map<String, V>> copy = new HashMap<>();
+        for (Map.Entry<Integer, Map<String, V>> entry : table.entrySet()) {
+            copy.put(entry.getKey(), Collections.unmodifiableMap(entry.getValue()));
+        }
+        return Collections.unmodifiableMap(copy);
+    }
+
+    private void compile() {
+        if (actions != null) {
+            return;
+        }
+
+        Map<String, Integer> terminals = new HashMap<>();
+        Map<String, Integer> nonterminals = new HashMap<>();
+        int states = 0;
+        for (Map.Entry<Integer, Map<String, String>> entry : actionTable.entrySet()) {
+            states = Math.max(states, entry.getKey() + 1);
+            for (String symbol : entry.getValue().keySet()) {
+                terminals.putIfAbsent(symbol, terminals.size());
+            }
+        }
+        for (Map.Entry<Integer, Map<String, Integer>> entry : gotoTable.entrySet()) {
+            states = Math.max(states, entry.getKey() + 1);
+            for (String symbol : entry.getValue().keySet()) {
+                nonterminals.putIfAbsent(symbol, nonterminals.size());
+            }
+        }
+
+        int[] denseActions = new int[states * terminals.size()];
+        for (Map.Entry<Integer, Map<String, String>> entry : actionTable.entrySet()) {
+            for (Map.Entry<String, String> action : entry.getValue().entrySet()) {
+                denseActions[entry.getKey() * terminals.size() + terminals.get(action.getKey())] =
+                        encodeAction(action.getValue());
+            }
+        }
+
+        int[] denseGotos = new int[states * nonterminals.size()];
+        Arrays.fill(denseGotos, -1);
+        for (Map.Entry<Integer, Map<String, Integer>> entry : gotoTable.entrySet()) {
+            for (Map.Entry<String, Integer> goTo : entry.getValue().entrySet()) {
+                denseGotos[entry.getKey() * nonterminals.size() + nonterminals.get(goTo.getKey())] = goTo.getValue();
+            }
+        }
+
+        this.terminalIds = terminals;
+        this.nonterminalIds = nonterminals;
+        this.gotos = denseGotos;
+        this.stateCount = states;
+        this.actions = denseActions;
     }
 
     public Map<Integer, Map<String, String>> getActionTable() {
@@ -55,4 +217,27 @@ public class ParsingTable {
         }
     }
 
+    // Custom method to handle quoted fields in CSV
+    static String[] parseCsvLine(String line, String delimiter) {
+        List<String> tokens = new ArrayList<>();
+        StringBuilder currentToken = new StringBuilder();
+        boolean inQuotes = false;
+
+        for (char c : line.toCharArray()) {
+            if (c == '"') {
+                inQuotes = !inQuotes; // Toggle the inQuotes flag
+            } else if (c == delimiter.charAt(0) && !inQuotes) {
+                // If not in quotes, split on the delimiter
+                tokens.add(currentToken.toString().trim());
+                currentToken.setLength(0);
+            } else {
+                // Otherwise, append the character to the current token
+                currentToken.append(c);
+            }
+        }
+        // Add the last token
+        tokens.add(currentToken.toString().trim());
+
+        return tokens.toArray(new String[0]);
+    }
 }
@@ -0,0 +1,316 @@
+package parser;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Seeded generator of random SPL programs for benchmarks and load tests. Programs are
+ * derived from the parser's own grammar rules with an explicit stack, so any size can
+ * be streamed out without deep recursion. The same seed and settings always give the
+ * same program.
+ *
+ * UNOP and void are never generated because the parser cannot handle them yet. Run
+ * from the project directory:
+ *
+ *   java parser.ProgramGenerator --size=1000000 [--seed=1] [--depth=2] [--globals=10] [--branches=0.2] [output.txt]
+ */
+public class ProgramGenerator {
+    private static final int MAX_BRANCH_DEPTH = 6;
+    private static final int MAX_OP_DEPTH = 3;
+    private static final int MAX_INSTRUCTIONS = 6; // per begin ... end block
+    private static final int VARIABLE_POOL = 50; // names used by instructions
+    private static final String EXIT = "/"; // marks the end of a symbol's expansion on the stack
+
+    private final Random random;
+    private final Map<String, List<GrammarRule>> alternatives = new HashMap<>();
+    private long size = 1024;
+    private int subfuncDepth = 1;
+    private int globalVariables = 5;
+    private double branchDensity = 0.15;
+
+    // Derivation state
+    private Appendable out;
+    private long written;
+    private boolean lineStart;
+    private int globalsLeft;
+    private int subfuncLevel;
+    private int branchLevel;
+    private int opLevel;
+    private int declaring; // inside GLOBVARS, LOCVARS or HEADER, where names are introduced
+    private boolean header;
+    private int functionCount;
+    private int variableCount;
+    private final Deque<Integer> functionBudgets = new ArrayDeque<>(); // declarations left per FUNCTIONS list
+    private final Deque<Integer> instructionBudgets = new ArrayDeque<>(); // commands left per ALGO
+
+    public ProgramGenerator(long seed) {
+        this(ParserInitializer.getGrammar(), seed);
+    }
+
+    public ProgramGenerator(Grammar grammar, long seed) {
+        this.random = new Random(seed);
+        for (GrammarRule rule : grammar.getRules()) {
+            if (!rule.getRhs().contains("UNOP") && !rule.getRhs().contains("void")) {
+                alternatives.computeIfAbsent(rule.getLhs(), k -> new ArrayList<>()).add(rule);
+            }
+        }
+    }
+
+    // Approximate program size in characters; functions are added until it is reached
+    public void setSize(long size) {
+        this.size = size;
+    }
+
+    // How deep functions nest through SUBFUNCS; 0 means no sub-functions
+    public void setSubfuncDepth(int subfuncDepth) {
+        this.subfuncDepth = subfuncDepth;
+    }
+
+    public void setGlobalVariables(int globalVariables) {
+        this.globalVariables = globalVariables;
+    }
+
+    // Chance that a command is an if-then-else, between 0 and 1
+    public void setBranchDensity(double branchDensity) {
+        this.branchDensity = branchDensity;
+    }
+
+    public void generate(Appendable out) throws IOException {
+        this.out = out;
+        written = 0;
+        lineStart = true;
+        globalsLeft = globalVariables;
+        subfuncLevel = 0;
+        branchLevel = 0;
+        opLevel = 0;
+        declaring = 0;
+        header = false;
+        functionCount = 0;
+        variableCount = 0;
+        functionBudgets.clear();
+        instructionBudgets.clear();
+        functionBudgets.push(Integer.MAX_VALUE); // top-level functions are limited by size instead
+
+        Deque<String> stack = new ArrayDeque<>();
+        stack.push("PROG");
+        while (!stack.isEmpty()) {
+            String symbol = stack.pop();
+            if (symbol.startsWith(EXIT) && symbol.length() > 1) {
+                leave(symbol.substring(1));
+            } else if (alternatives.containsKey(symbol)) {
+                GrammarRule rule = choose(symbol);
+                enter(symbol);
+                stack.push(EXIT + symbol);
+                List<String> rhs = rule.getRhs();
+                for (int i = rhs.size() - 1; i >= 0; i--) {
+                    stack.push(rhs.get(i));
+                }
+            } else {
+                emit(lexeme(symbol));
+            }
+        }
+    }
+
+    public String generate() {
+        StringBuilder program = new StringBuilder();
+        try {
+            generate(program);
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // StringBuilder never throws
+        }
+        return program.toString();
+    }
+
+    private GrammarRule choose(String lhs) {
+        List<GrammarRule> rules = alternatives.get(lhs);
+        switch (lhs) {
+            case "GLOBVARS":
+                return recursive(rules, globalsLeft-- > 0);
+            case "FUNCTIONS": {
+                int budget = functionBudgets.pop();
+                boolean more = budget > 0 && (subfuncLevel > 0 || written < size);
+                functionBudgets.push(more ? budget - 1 : budget);
+                return recursive(rules, more);
+            }
+            case "INSTRUC": {
+                int budget = instructionBudgets.pop();
+                instructionBudgets.push(budget - 1);
+                return recursive(rules, budget > 0);
+            }
+            case "COMMAND":
+                if (branchLevel < MAX_BRANCH_DEPTH && random.nextDouble() < branchDensity) {
+                    return withSymbol(rules, "BRANCH", true);
+                }
+                return withSymbol(rules, "BRANCH", false);
+            case "TERM":
+            case "ARG":
+                if (opLevel >= MAX_OP_DEPTH || random.nextInt(4) != 0) {
+                    return withSymbol(rules, "OP", false);
+                }
+                return rules.get(random.nextInt(rules.size()));
+            default:
+                return rules.get(random.nextInt(rules.size()));
+        }
+    }
+
+    // The empty or the non-empty alternative of a right-recursive list
+    private static GrammarRule recursive(List<GrammarRule> rules, boolean nonEmpty) {
+        for (GrammarRule rule : rules) {
+            if (rule.getRhs().isEmpty() != nonEmpty) {
+                return rule;
+            }
+        }
+        throw new IllegalStateException("No " + (nonEmpty ? "non-empty" : "empty") + " rule for " + rules.get(0).getLhs());
+    }
+
+    // A random alternative that does or does not contain symbol
+    private GrammarRule withSymbol(List<GrammarRule> rules, String symbol, boolean contains) {
+        List<GrammarRule> matching = new ArrayList<>();
+        for (GrammarRule rule : rules) {
+            if (rule.getRhs().contains(symbol) == contains) {
+                matching.add(rule);
+            }
+        }
+        return matching.get(random.nextInt(matching.size()));
+    }
+
+    private void enter(String lhs) {
+        switch (lhs) {
+            case "SUBFUNCS":
+                subfuncLevel++;
+                functionBudgets.push(subfuncLevel <= subfuncDepth ? 1 : 0);
+                break;
+            case "ALGO":
+                // Blocks inside branches stay short, or nested branches would grow the program exponentially
+                instructionBudgets.push(1 + random.nextInt(branchLevel == 0 ? MAX_INSTRUCTIONS : 2));
+                break;
+            case "BRANCH":
+                branchLevel++;
+                break;
+            case "OP":
+                opLevel++;
+                break;
+            case "HEADER":
+                header = true;
+                declaring++;
+                break;
+            case "GLOBVARS":
+            case "LOCVARS":
+                declaring++;
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void leave(String lhs) {
+        switch (lhs) {
+            case "SUBFUNCS":
+                subfuncLevel--;
+                functionBudgets.pop();
+                break;
+            case "ALGO":
+                instructionBudgets.pop();
+                break;
+            case "BRANCH":
+                branchLevel--;
+                break;
+            case "OP":
+                opLevel--;
+                break;
+            case "HEADER":
+                header = false;
+                declaring--;
+                break;
+            case "GLOBVARS":
+            case "LOCVARS":
+                declaring--;
+                break;
+            default:
+                break;
+        }
+    }
+
+    private String lexeme(String terminal) {
+        switch (terminal) {
+            case "V":
+                if (declaring > 0) {
+                    return "V_v" + variableCount++;
+                }
+                return "V_v" + random.nextInt(Math.max(1, Math.min(variableCount, VARIABLE_POOL)));
+            case "F":
+                if (header) {
+                    return "F_f" + functionCount++;
+                }
+                return "F_f" + random.nextInt(Math.max(1, functionCount));
+            // ParserInitializer spells the num and text keywords like the literal classes
+            case "N":
+                return declaring > 0 ? "num" : String.valueOf(random.nextInt(1000));
+            case "T":
+                return declaring > 0 ? "text" : "\"" + (char) ('A' + random.nextInt(26)) + "ext\"";
+            default:
+                return terminal;
+        }
+    }
+
+    // Tokens are separated by spaces, with a line break after the ones that end a declaration or command
+    private void emit(String text) throws IOException {
+        if (!lineStart) {
+            out.append(' ');
+            written++;
+        }
+        out.append(text);
+        written += text.length();
+        lineStart = false;
+        if (text.equals(";") || text.equals("{") || text.equals("}") || text.equals("begin") || text.equals("end")
+                || text.equals("main") || (text.equals(",") && declaring > 0 && !header)) {
+            out.append('\n');
+            written++;
+            lineStart = true;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        long seed = 1;
+        long size = 1024;
+        int depth = 1;
+        int globals = 5;
+        double branches = 0.15;
+        String outputFile = null;
+        for (String arg : args) {
+            if (arg.startsWith("--size=")) {
+                size = Long.parseLong(arg.substring("--size=".length()));
+            } else if (arg.startsWith("--seed=")) {
+                seed = Long.parseLong(arg.substring("--seed=".length()));
+            } else if (arg.startsWith("--depth=")) {
+                depth = Integer.parseInt(arg.substring("--depth=".length()));
+            } else if (arg.startsWith("--globals=")) {
+                globals = Integer.parseInt(arg.substring("--globals=".length()));
+            } else if (arg.startsWith("--branches=")) {
+                branches = Double.parseDouble(arg.substring("--branches=".length()));
+            } else {
+                outputFile = arg;
+            }
+        }
+
+        ProgramGenerator generator = new ProgramGenerator(seed);
+        generator.setSize(size);
+        generator.setSubfuncDepth(depth);
+        generator.setGlobalVariables(globals);
+        generator.setBranchDensity(branches);
+        try (Writer out = new BufferedWriter(outputFile != null ? new FileWriter(outputFile)
+                : new OutputStreamWriter(System.out))) {
+            generator.generate(out);
+        }
+    }
+}
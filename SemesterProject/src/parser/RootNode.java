@@ -2,13 +2,19 @@ package parser;
 
 public class RootNode extends TreeNode {
     private String startSymbol;
+    private final int symbolId; // see GrammarSymbols
 
-    public RootNode(String startSymbol) {
-        super();
-        this.startSymbol = startSymbol;
+    public RootNode(int unid, String startSymbol) {
+        super(unid);
+        this.symbolId = GrammarSymbols.intern(startSymbol);
+        this.startSymbol = GrammarSymbols.name(symbolId);
     }
 
     public String getStartSymbol() {
         return startSymbol;
     }
+
+    public int getSymbolId() {
+        return symbolId;
+    }
 }
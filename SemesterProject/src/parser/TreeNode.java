@@ -4,33 +4,53 @@ import java.util.ArrayList;
 import java.util.List;
 
 public abstract class TreeNode {
-    private static int nextId = 1;
-    protected int unid;
-    protected int parentId;
-    protected List<Integer> childrenIds;
-
-    public TreeNode() {
-        this.unid = nextId++;
-        this.childrenIds = new ArrayList<>();
+    private static final TreeNode[] NO_CHILDREN = new TreeNode[0];
+    protected final int unid;
+    protected TreeNode parent;
+    // Children in the order the parser pops them (last RHS symbol first), as SYNTREE lists them
+    protected TreeNode[] children;
+
+    // Ids come from the owning ParseTree, see ParseTree.createInnerNode and friends
+    public TreeNode(int unid) {
+        this.unid = unid;
+        this.children = NO_CHILDREN;
     }
 
     public int getUnid() {
         return unid;
     }
 
+    public TreeNode getParent() {
+        return parent;
+    }
+
+    // Parent unid for serialization, 0 if there is no parent
     public int getParentId() {
-        return parentId;
+        return parent == null ? 0 : parent.getUnid();
     }
 
-    public void setParentId(int parentId) {
-        this.parentId = parentId;
+    public int getChildCount() {
+        return children.length;
     }
 
-    public List<Integer> getChildrenIds() {
-        return childrenIds;
+    public TreeNode getChild(int index) {
+        return children[index];
     }
 
-    public void addChildId(int childId) {
-        childrenIds.add(childId);
+    // Links the children to this node; the array is kept, not copied
+    public void setChildren(TreeNode[] children) {
+        this.children = children;
+        for (TreeNode child : children) {
+            child.parent = this;
+        }
+    }
+
+    // Child unids for serialization
+    public List<Integer> getChildrenIds() {
+        List<Integer> ids = new ArrayList<>(children.length);
+        for (TreeNode child : children) {
+            ids.add(child.getUnid());
+        }
+        return ids;
     }
 }
@@ -1,26 +1,44 @@
 package semantic;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class Scope {
+    private static final Object NOT_FOUND = new Object(); // cached miss, ConcurrentHashMap cannot hold null
+
     private String name;
     private Scope parent;
+    private Scope root;
     private List<Scope> children;
     private List<TableEntry> variables;
+    private Map<String, TableEntry> variablesByName; // first entry per name, like the old linear search
     private int scopeId;
 
+    // Set on every scope of the tree by freeze(); the tree cannot change afterwards
+    private boolean frozen;
+    private int preOrder;
+    private int postOrder;
+    private Map<String, Object> resolveCache; // only once frozen, so cached results never go stale
+
     public Scope(String name, Scope parent, int scopeId) {
         this.name = name;
         this.parent = parent;
+        this.root = parent == null ? this : parent.root;
         this.children = new ArrayList<>();
         this.variables = new ArrayList<>();
+        this.variablesByName = new HashMap<>();
         this.scopeId = scopeId;
         if (parent != null) {
             parent.addChild(this);
         }
     }
 
+    // Only a scope created with this one as its parent can be added, which the constructor already does
     public void addChild(Scope child) {
+        checkNotFrozen();
+        if (child.parent != this) {
+            throw new IllegalArgumentException("Scope " + child.name + " was created under another parent");
+        }
         children.add(child);
     }
 
@@ -45,33 +63,101 @@ public class Scope {
     }
 
     public void addVariable(TableEntry variable) {
+        checkNotFrozen();
         variables.add(variable);
+        variablesByName.putIfAbsent(variable.getName(), variable);
     }
 
     public boolean hasVariable(String name) {
-        return variables.stream().anyMatch(v -> v.getName().equals(name));
+        return variablesByName.containsKey(name);
     }
 
     public TableEntry findVariable(String name) {
-        for (TableEntry var : variables) {
-            if (var.getName().equals(name)) {
-                return var;
-            }
+        return variablesByName.get(name);
+    }
+
+    // The entry name refers to here: the nearest scope outwards that declares it, or null.
+    // Cached per scope once the tree is frozen; safe to call from several threads then.
+    public TableEntry resolve(String name) {
+        if (!frozen) {
+            return resolveUncached(name);
         }
-        return null;
+        Object entry = resolveCache.get(name);
+        if (entry == null) {
+            TableEntry resolved = resolveUncached(name);
+            entry = resolved == null ? NOT_FOUND : resolved;
+            resolveCache.putIfAbsent(name, entry);
+        }
+        return entry == NOT_FOUND ? null : (TableEntry) entry;
     }
 
+    private TableEntry resolveUncached(String name) {
+        TableEntry entry = null;
+        for (Scope scope = this; scope != null && entry == null; scope = scope.parent) {
+            entry = scope.variablesByName.get(name);
+        }
+        return entry;
+    }
+
+    // O(1) with the pre/post-order numbers once the tree is frozen, a walk up the parents before
     public boolean isDescendantOf(Scope potentialAncestor) {
-        Scope current = this.parent;
-        while (current != null) {
-            if (current == potentialAncestor) {
+        if (potentialAncestor == null || potentialAncestor.root != root) {
+            return false;
+        }
+        if (frozen) {
+            return potentialAncestor.preOrder < preOrder && postOrder < potentialAncestor.postOrder;
+        }
+        for (Scope scope = parent; scope != null; scope = scope.parent) {
+            if (scope == potentialAncestor) {
                 return true;
             }
-            current = current.getParent();
         }
         return false;
     }
-}
 
+    public boolean isFrozen() {
+        return frozen;
+    }
 
+    // Numbers every scope of the tree in one walk and stops further changes; called once the
+    // analyzer has built the whole tree. Freezing an already frozen tree does nothing.
+    public void freeze() {
+        if (root != this) {
+            root.freeze();
+            return;
+        }
+        if (frozen) {
+            return;
+        }
+        int counter = 0;
+        Deque<Scope> stack = new ArrayDeque<>();
+        Deque<Integer> nextChild = new ArrayDeque<>();
+        preOrder = counter++;
+        stack.push(this);
+        nextChild.push(0);
+        while (!stack.isEmpty()) {
+            Scope scope = stack.peek();
+            int index = nextChild.pop();
+            if (index < scope.children.size()) {
+                nextChild.push(index + 1);
+                Scope child = scope.children.get(index);
+                child.preOrder = counter++;
+                stack.push(child);
+                nextChild.push(0);
+            } else {
+                scope.postOrder = counter++;
+                scope.children = Collections.unmodifiableList(scope.children);
+                scope.variables = Collections.unmodifiableList(scope.variables);
+                scope.resolveCache = new ConcurrentHashMap<>();
+                scope.frozen = true;
+                stack.pop();
+            }
+        }
+    }
 
+    private void checkNotFrozen() {
+        if (root.frozen) {
+            throw new IllegalStateException("Scope tree is frozen");
+        }
+    }
+}
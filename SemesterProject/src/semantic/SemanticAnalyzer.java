@@ -1,188 +1,181 @@
 package semantic;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Stack;
-import parser.ParseTree;
-import parser.RootNode;
-import parser.InnerNode;
-import parser.LeafNode;
-import parser.TreeNode;
+import lexer.Token;
+import parser.GrammarSymbols;
+import parser.ParseTreeView;
+import util.Trace;
 
 public class SemanticAnalyzer {
     private List<TableEntry> symbolTable = new ArrayList<>();
     private int functionCounter = 1;
     private int variableCounter = 1;
     private int scopeCounter = 0;
-    private ParseTree parseTree;
+    private ParseTreeView tree;
     private boolean insideSubfuncs = false;
     private int currentParentScope = 0; // Track current parent scope
     private Stack<Integer> scopeStack = new Stack<>(); // Stack to track nested scopes
+    private List<Scope> scopes = new ArrayList<>(); // indexed by scope id
+    private Map<String, TableEntry> entriesByInternalName = new HashMap<>();
 
-    private boolean isInsideSubfuncs(TreeNode node) {
-        TreeNode current = node;
-        while (current != null) {
-            if (current instanceof InnerNode) {
-                InnerNode innerNode = (InnerNode) current;
-                if (innerNode.getNonterminal().equals("SUBFUNCS")) {
-                    return true;
-                }
-            }
-            // Get parent node
-            current = getParentNode(current);
-        }
-        return false;
-    }
-
-    private TreeNode getParentNode(TreeNode node) {
-        for (InnerNode innerNode : parseTree.getInnerNodes()) {
-            if (innerNode.getChildrenIds().contains(node.getUnid())) {
-                return innerNode;
-            }
-        }
-        return null;
-    }
-
-    public SemanticAnalyzer(ParseTree parseTree) {
-        this.parseTree = parseTree;
+    // Works the same on a ParseTree and a CompactParseTree
+    public SemanticAnalyzer(ParseTreeView tree) {
+        this.tree = tree;
         scopeStack.push(0);
+        scopes.add(new Scope("global", null, 0));
     }
 
     public void analyze() {
-        RootNode rootNode = parseTree.getRoot();
-        traverse(rootNode);
-        printSymbolTable();
+        traverse(tree.getRootId());
+        getGlobalScope().freeze(); // the scope tree is complete; resolve() may cache from here on
+        if (Trace.isTracing()) {
+            printSymbolTable();
+        }
     }
 
 
 
-    // Traverse the syntax tree
-    private void traverse(TreeNode node) {
-        List<Integer> children = node.getChildrenIds();
+    // Traverse the syntax tree depth-first with an explicit stack, so deep trees cannot overflow the
+    // thread stack; INSTRUC and FUNCTIONS lists make the depth grow with the program's length
+    private void traverse(int root) {
+        int[] nodes = new int[64];
+        int[] nextChild = new int[64]; // children are visited in reverse order, so this counts down
+        int[] enclosing = new int[64]; // scope of the function whose DECL encloses each node, 0 outside any
+        int[] declared = new int[64]; // scope a FUNCTIONS node created for its DECL child
+        int depth = 0;
+        int subfuncsOnStack = 0; // SUBFUNCS nodes among the nodes on the stack
 
-        // Check if we're entering SUBFUNCS
-        if (node instanceof InnerNode && ((InnerNode) node).getNonterminal().equals("SUBFUNCS")) {
+        nodes[0] = root;
+        nextChild[0] = tree.getChildCount(root) - 1;
+        enclosing[0] = 0;
+        declared[0] = 0;
+        if (isSubfuncs(root)) {
             insideSubfuncs = true;
+            subfuncsOnStack++;
         }
 
-        // Traverse children in reverse order
-        for (int i = children.size() - 1; i >= 0; i--) {
-            int childId = children.get(i);
-            TreeNode childNode = getNodeByID(childId);
-
-            if (childNode instanceof InnerNode) {
-                InnerNode innerNode = (InnerNode) childNode;
-                String symbol = innerNode.getNonterminal();
-
-                System.out.println("Processing inner node: " + innerNode.getNonterminal() +
-                        " (Inside SUBFUNCS: " + insideSubfuncs + ")");
-
-                if (symbol.equals("GLOBVARS")) {
-                    handleGlobalVariables(innerNode);
-                } else if (symbol.equals("FUNCTIONS")) {
-                    handleFunctions(innerNode);
+        while (depth >= 0) {
+            int node = nodes[depth];
+            int i = nextChild[depth]--;
+            if (i < 0) {
+                // Leaving the node
+                if (isSubfuncs(node)) {
+                    insideSubfuncs = false;
+                    subfuncsOnStack--;
                 }
-            } else if (childNode instanceof LeafNode) {
-                LeafNode leafNode = (LeafNode) childNode;
-                System.out.println("Processing leaf node: " + leafNode.getToken());
-                handleLeafNode(leafNode);
+                depth--;
+                continue;
             }
 
-            traverse(childNode);
-        }
-
-        // Check if we're leaving SUBFUNCS
-        if (node instanceof InnerNode && ((InnerNode) node).getNonterminal().equals("SUBFUNCS")) {
-            insideSubfuncs = false;
-        }
-    }
+            int childNode = tree.getChildId(node, i);
+            int childDeclared = 0;
+            if (!tree.isLeaf(childNode)) {
+                int symbol = tree.getSymbolId(childNode);
 
-    // Handle global variables (GLOBVARS)
+                if (Trace.isTracing()) {
+                    System.out.println("Processing inner node: " + tree.getSymbol(childNode) +
+                            " (Inside SUBFUNCS: " + insideSubfuncs + ")");
+                }
 
-    private TreeNode getNodeByID(int id) {
-        for (InnerNode innerNode : parseTree.getInnerNodes()) {
-            if (innerNode.getUnid() == id) {
-                return innerNode;
+                if (symbol == GrammarSymbols.GLOBVARS) {
+                    handleGlobalVariables(childNode);
+                } else if (symbol == GrammarSymbols.FUNCTIONS) {
+                    childDeclared = handleFunctions(childNode, subfuncsOnStack > 0, enclosing[depth]);
+                }
+            } else {
+                if (Trace.isTracing()) {
+                    System.out.println("Processing leaf node: "
+                            + new Token(tree.getTokenType(childNode), tree.getTokenValue(childNode)));
+                }
+                handleLeafNode(childNode);
             }
-        }
 
-        for (LeafNode leafNode : parseTree.getLeafNodes()) {
-            if (leafNode.getUnid() == id) {
-                return leafNode;
+            // Entering the child
+            depth++;
+            if (depth == nodes.length) {
+                nodes = Arrays.copyOf(nodes, depth * 2);
+                nextChild = Arrays.copyOf(nextChild, depth * 2);
+                enclosing = Arrays.copyOf(enclosing, depth * 2);
+                declared = Arrays.copyOf(declared, depth * 2);
+            }
+            nodes[depth] = childNode;
+            nextChild[depth] = tree.getChildCount(childNode) - 1;
+            // Entering a DECL enters its function's scope; leaving it drops the entry with the node
+            boolean isDecl = !tree.isLeaf(childNode) && tree.getSymbolId(childNode) == GrammarSymbols.DECL;
+            enclosing[depth] = isDecl ? declared[depth - 1] : enclosing[depth - 1];
+            declared[depth] = childDeclared;
+            if (isSubfuncs(childNode)) {
+                insideSubfuncs = true;
+                subfuncsOnStack++;
             }
         }
+    }
+
+    private boolean isSubfuncs(int node) {
+        return !tree.isLeaf(node) && tree.getSymbolId(node) == GrammarSymbols.SUBFUNCS;
+    }
 
-        return null;
+    // The leaf under a VTYP, VNAME, FTYP or FNAME node
+    private int onlyChild(int node) {
+        return tree.getChildId(node, 0);
     }
 
-    private void handleGlobalVariables(InnerNode innerNode) {
-        System.out.println("Processing global variables.");
-        List<Integer> children = innerNode.getChildrenIds();
+    // Handle global variables (GLOBVARS)
+    private void handleGlobalVariables(int innerNode) {
+        Trace.trace("Processing global variables.");
 
-        if (children.size() == 0) {
+        if (tree.getChildCount(innerNode) == 0) {
             return;
         }
 
-        LeafNode typeNode = null;
-        LeafNode nameNode = null;
-        for (int i = children.size() - 1; i >= 0; i--) {
-            TreeNode childNode = getNodeByID(children.get(i));
-
-            if (childNode instanceof InnerNode) {
-                InnerNode innerChildNode = (InnerNode) childNode;
-                if (innerChildNode.getNonterminal().equals("VTYP")) {
-                    TreeNode grandChildNode = getNodeByID(innerChildNode.getChildrenIds().get(0));
-                    LeafNode vTypNode = (LeafNode) grandChildNode;
-                    typeNode = vTypNode;
-                } else if (innerChildNode.getNonterminal().equals("VNAME")) {
-                    TreeNode grandChildNode = getNodeByID(innerChildNode.getChildrenIds().get(0));
-                    LeafNode vNameNode = (LeafNode) grandChildNode;
-                    nameNode = vNameNode;
+        int typeNode = 0;
+        int nameNode = 0;
+        for (int i = tree.getChildCount(innerNode) - 1; i >= 0; i--) {
+            int childNode = tree.getChildId(innerNode, i);
+
+            if (!tree.isLeaf(childNode)) {
+                if (tree.getSymbolId(childNode) == GrammarSymbols.VTYP) {
+                    typeNode = onlyChild(childNode);
+                } else if (tree.getSymbolId(childNode) == GrammarSymbols.VNAME) {
+                    nameNode = onlyChild(childNode);
                 }
             }
         }
 
-        symbolTable.add(new TableEntry(nameNode.getToken().getValue(), typeNode.getToken().getValue(), scopeCounter,
-                makeVariableName(), nameNode.getToken().getValue(), false, 0, false));
+        addEntry(new TableEntry(tree.getTokenValue(nameNode), tree.getTokenValue(typeNode), scopeCounter,
+                makeVariableName(), tree.getTokenValue(nameNode), false, 0, false));
     }
 
-    private void handleFunctions(InnerNode innerNode) {
-        if (innerNode.getChildrenIds().size() == 0) {
-            return;
+    // isSubfunction: whether a SUBFUNCS node encloses innerNode; parentScope: the enclosing function's scope.
+    // Returns the scope created for the node's DECL, or 0 if it has none
+    private int handleFunctions(int innerNode, boolean isSubfunction, int parentScope) {
+        if (tree.getChildCount(innerNode) == 0) {
+            return 0;
         }
 
-        boolean isSubfunction = isInsideSubfuncs(innerNode);
-        System.out.println("Processing function declarations. Is Subfunction: " + isSubfunction);
-
-        // Store the parent scope before incrementing scope counter
-        int parentScope = scopeStack.peek();
-
-        if (isSubfunction) {
-            parentScope = scopeCounter;
+        if (Trace.isTracing()) {
+            System.out.println("Processing function declarations. Is Subfunction: " + isSubfunction);
         }
 
-        scopeCounter++;
-        scopeStack.push(scopeCounter); // Push new scope
-
-        List<Integer> children = innerNode.getChildrenIds();
+        int scope = ++scopeCounter;
+        scopeStack.push(scope); // Push new scope
 
-        for (int i = children.size() - 1; i >= 0; i--) {
-            TreeNode childNode = getNodeByID(children.get(i));
+        for (int i = tree.getChildCount(innerNode) - 1; i >= 0; i--) {
+            int childNode = tree.getChildId(innerNode, i);
 
-            if (childNode instanceof InnerNode) {
-                InnerNode innerChildNode = (InnerNode) childNode;
-                if (innerChildNode.getNonterminal().equals("DECL")) {
-                    List<Integer> grandChildren = innerChildNode.getChildrenIds();
-
-                    for (int j = grandChildren.size() - 1; j >= 0; j--) {
-                        TreeNode grandChildNode = getNodeByID(grandChildren.get(j));
-                        if (grandChildNode instanceof InnerNode) {
-                            InnerNode innerGrandChildNode = (InnerNode) grandChildNode;
-                            if (innerGrandChildNode.getNonterminal().equals("HEADER")) {
-                                handleHeader(innerGrandChildNode, isSubfunction, parentScope);
-                            } else if (innerGrandChildNode.getNonterminal().equals("BODY")) {
-                                handleBody(innerGrandChildNode);
-                            }
+            if (!tree.isLeaf(childNode) && tree.getSymbolId(childNode) == GrammarSymbols.DECL) {
+                for (int j = tree.getChildCount(childNode) - 1; j >= 0; j--) {
+                    int grandChildNode = tree.getChildId(childNode, j);
+                    if (!tree.isLeaf(grandChildNode)) {
+                        if (tree.getSymbolId(grandChildNode) == GrammarSymbols.HEADER) {
+                            handleHeader(grandChildNode, isSubfunction, parentScope);
+                        } else if (tree.getSymbolId(grandChildNode) == GrammarSymbols.BODY) {
+                            handleBody(grandChildNode);
                         }
                     }
                 }
@@ -191,100 +184,92 @@ public class SemanticAnalyzer {
 
         // Pop the scope when done with this function
         scopeStack.pop();
+        return scope;
     }
 
-    private void handleHeader(InnerNode innerNode, boolean isSubfunction, int parentScope) {
-        List<Integer> children = innerNode.getChildrenIds();
-
-        LeafNode typeNode = null;
-        LeafNode nameNode = null;
-        for (int i = children.size() - 1; i >= 0; i--) {
-            TreeNode childNode = getNodeByID(children.get(i));
-            if (childNode instanceof InnerNode) {
-                InnerNode innerChildNode = (InnerNode) childNode;
-                if (innerChildNode.getNonterminal().equals("FTYP")) {
-                    TreeNode grandChildNode = getNodeByID(innerChildNode.getChildrenIds().get(0));
-                    LeafNode fTypNode = (LeafNode) grandChildNode;
-                    typeNode = fTypNode;
-                } else if (innerChildNode.getNonterminal().equals("FNAME")) {
-                    TreeNode grandChildNode = getNodeByID(innerChildNode.getChildrenIds().get(0));
-                    LeafNode fNameNode = (LeafNode) grandChildNode;
-                    nameNode = fNameNode;
+    private void handleHeader(int innerNode, boolean isSubfunction, int parentScope) {
+        int typeNode = 0;
+        int nameNode = 0;
+        for (int i = tree.getChildCount(innerNode) - 1; i >= 0; i--) {
+            int childNode = tree.getChildId(innerNode, i);
+            if (!tree.isLeaf(childNode)) {
+                if (tree.getSymbolId(childNode) == GrammarSymbols.FTYP) {
+                    typeNode = onlyChild(childNode);
+                } else if (tree.getSymbolId(childNode) == GrammarSymbols.FNAME) {
+                    nameNode = onlyChild(childNode);
                 }
             }
         }
+        String name = tree.getTokenValue(nameNode);
+
+        if (Trace.isTracing()) {
+            System.out.println("Adding function " + name +
+                    " to symbol table (Is Subfunction: " + isSubfunction +
+                    ", Parent Scope: " + parentScope + ")");
+        }
 
-        System.out.println("Adding function " + nameNode.getToken().getValue() +
-                " to symbol table (Is Subfunction: " + isSubfunction +
-                ", Parent Scope: " + parentScope + ")");
+        // The function's own scope, under the parent scope recorded in its entry
+        scopes.add(new Scope(name, scopes.get(parentScope), scopeCounter));
 
-        symbolTable.add(new TableEntry(
-                nameNode.getToken().getValue(),
-                typeNode.getToken().getValue(),
+        TableEntry entry = new TableEntry(
+                name,
+                tree.getTokenValue(typeNode),
                 scopeCounter,
                 makeFunctionName(),
-                nameNode.getToken().getValue(),
+                name,
                 isSubfunction,
                 parentScope, // Add parent scope ID
                 isSubfunction
-        ));
-    }
+        );
+        addEntry(entry);
 
-    private void handleBody(InnerNode innerNode) {
-        List<Integer> children = innerNode.getChildrenIds();
+        // Callers live in the enclosing scope, so the name must resolve from there too
+        scopes.get(parentScope).addVariable(entry);
+    }
 
-        for (int i = children.size() - 1; i >= 0; i--) {
-            TreeNode childNode = getNodeByID(children.get(i));
-            if (childNode instanceof InnerNode) {
-                InnerNode innerChildNode = (InnerNode) childNode;
-                if (innerChildNode.getNonterminal().equals("LOCVARS")) {
-                    handleLocalVariables(innerChildNode);
-                }
+    private void handleBody(int innerNode) {
+        for (int i = tree.getChildCount(innerNode) - 1; i >= 0; i--) {
+            int childNode = tree.getChildId(innerNode, i);
+            if (!tree.isLeaf(childNode) && tree.getSymbolId(childNode) == GrammarSymbols.LOCVARS) {
+                handleLocalVariables(childNode);
             }
         }
     }
 
-    private void handleLocalVariables(InnerNode innerNode) {
-        List<Integer> children = innerNode.getChildrenIds();
-
-        LeafNode typeNode = null;
-        LeafNode nameNode = null;
-        for (int i = children.size() - 1; i >= 0; i--) {
-            TreeNode childNode = getNodeByID(children.get(i));
-            if (childNode instanceof InnerNode) {
-                InnerNode innerChildNode = (InnerNode) childNode;
-                if (innerChildNode.getNonterminal().equals("VTYP")) {
-                    TreeNode grandChildNode = getNodeByID(innerChildNode.getChildrenIds().get(0));
-                    LeafNode vTypNode = (LeafNode) grandChildNode;
-                    typeNode = vTypNode;
-                } else if (innerChildNode.getNonterminal().equals("VNAME")) {
-                    TreeNode grandChildNode = getNodeByID(innerChildNode.getChildrenIds().get(0));
-                    LeafNode vNameNode = (LeafNode) grandChildNode;
-                    nameNode = vNameNode;
+    private void handleLocalVariables(int innerNode) {
+        int typeNode = 0;
+        int nameNode = 0;
+        for (int i = tree.getChildCount(innerNode) - 1; i >= 0; i--) {
+            int childNode = tree.getChildId(innerNode, i);
+            if (!tree.isLeaf(childNode)) {
+                if (tree.getSymbolId(childNode) == GrammarSymbols.VTYP) {
+                    typeNode = onlyChild(childNode);
+                } else if (tree.getSymbolId(childNode) == GrammarSymbols.VNAME) {
+                    nameNode = onlyChild(childNode);
                 }
             }
 
-            if (typeNode != null && nameNode != null) {
-                symbolTable.add(new TableEntry(
-                        nameNode.getToken().getValue(),
-                        typeNode.getToken().getValue(),
+            if (typeNode != 0 && nameNode != 0) {
+                addEntry(new TableEntry(
+                        tree.getTokenValue(nameNode),
+                        tree.getTokenValue(typeNode),
                         scopeCounter,
                         makeVariableName(),
-                        nameNode.getToken().getValue(),
+                        tree.getTokenValue(nameNode),
                         false, // variables aren't subfunctions
                         scopeStack.peek(), // current scope's parent
                         false
                 ));
-                typeNode = null;
-                nameNode = null;
+                typeNode = 0;
+                nameNode = 0;
             }
         }
 
     }
 
-    private void handleLeafNode(LeafNode leafNode) {
-        if (leafNode.getToken().getValue().equals("main")) {
-            symbolTable.add(new TableEntry("main", "main", scopeCounter, makeFunctionName(), "main", false, 0, true));
+    private void handleLeafNode(int leafNode) {
+        if (tree.getTokenValue(leafNode).equals("main")) {
+            addEntry(new TableEntry("main", "main", scopeCounter, makeFunctionName(), "main", false, 0, true));
         }
     }
 
@@ -296,10 +281,44 @@ public class SemanticAnalyzer {
         return "v" + variableCounter++;
     }
 
+    // Every entry goes into the flat table, its scope and the internal name index
+    private void addEntry(TableEntry entry) {
+        symbolTable.add(entry);
+        scopes.get(entry.getScopeId()).addVariable(entry);
+        entriesByInternalName.put(entry.getInternalName(), entry);
+    }
+
     public List<TableEntry> getSymbolTable() {
         return symbolTable;
     }
 
+    // Scope 0, the root of the scope tree
+    public Scope getGlobalScope() {
+        return scopes.get(0);
+    }
+
+    // The scope with the given id, or null if there is none
+    public Scope getScope(int scopeId) {
+        return scopeId >= 0 && scopeId < scopes.size() ? scopes.get(scopeId) : null;
+    }
+
+    // The entry declared as name directly in the scope, or null
+    public TableEntry lookup(int scopeId, String name) {
+        Scope scope = getScope(scopeId);
+        return scope == null ? null : scope.findVariable(name);
+    }
+
+    // The entry name refers to inside the scope, searching outwards through its parents, or null
+    public TableEntry resolve(int scopeId, String name) {
+        Scope scope = getScope(scopeId);
+        return scope == null ? null : scope.resolve(name);
+    }
+
+    // The entry with an internal name such as v1 or f2, or null
+    public TableEntry getEntryByInternalName(String internalName) {
+        return entriesByInternalName.get(internalName);
+    }
+
     private void printSymbolTable() {
         System.out.println("\nSymbol Table:");
         System.out.println("=======================================================================");
@@ -0,0 +1,49 @@
+package util;
+
+/**
+ * Process-wide console verbosity for the compiler phases.
+ *
+ * QUIET prints nothing but errors, SUMMARY prints one line per phase result and
+ * TRACE prints every parser step and visited node. Hot loops check isTracing()
+ * before building a message, so a disabled trace costs one field read.
+ */
+public final class Trace {
+    public enum Level {
+        QUIET,
+        SUMMARY,
+        TRACE
+    }
+
+    private static volatile Level level = Level.SUMMARY;
+
+    private Trace() {
+    }
+
+    public static Level getLevel() {
+        return level;
+    }
+
+    public static void setLevel(Level newLevel) {
+        level = newLevel;
+    }
+
+    public static boolean isTracing() {
+        return level == Level.TRACE;
+    }
+
+    public static boolean isSummary() {
+        return level != Level.QUIET;
+    }
+
+    public static void trace(String message) {
+        if (isTracing()) {
+            System.out.println(message);
+        }
+    }
+
+    public static void summary(String message) {
+        if (isSummary()) {
+            System.out.println(message);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package lexer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.Test;
+
+import parser.ProgramGenerator;
+
+class LexerTest {
+    private static final String[] FILES = {
+            "txt/RecursiveCalls.txt", "txt/allTest.txt", "txt/basic.txt", "txt/branching.txt",
+            "txt/global.txt", "txt/printAssign.txt", "txt/simple.txt", "txt/instructs.txt",
+    };
+
+    // Words where keywords, names and numbers overlap or run into each other
+    private static final String[] SNIPPETS = {
+            "main num V_x , text V_y begin V_x = input ; end",
+            "mainbegin endif V_ab1 F_f2(V_x,V_y) \"Hello\" \"Toolongword\" -12.5 3. 007",
+            "if grt(V_a,5) then begin halt ; end else begin skip ; end",
+            "V_x=add(sqrt(V_y),not(V_z));print \"Ok\";return V_x",
+            "inputs input( void{ }< or and eq mul div sub",
+    };
+
+    // The lexer before the TokenScanner: try each type's regex in declaration order, first match wins
+    private static List<String> regexTokens(String program) {
+        String input = program.trim();
+        List<String> tokens = new ArrayList<>();
+        int pos = 0;
+        while (pos < input.length()) {
+            while (pos < input.length() && Character.isWhitespace(input.charAt(pos))) {
+                pos++;
+            }
+            String matched = null;
+            for (Token.TokenType type : Token.TokenType.values()) {
+                if (type == Token.TokenType.EOF || type.getPattern().isEmpty()) {
+                    continue; // the old loop matched an empty non-terminal here and never advanced
+                }
+                Matcher matcher = Pattern.compile("^" + type.getPattern()).matcher(input.substring(pos));
+                if (matcher.find()) {
+                    matched = type + " " + matcher.group();
+                    pos += matcher.group().length();
+                    break;
+                }
+            }
+            if (matched == null) {
+                tokens.add("error at " + pos);
+                return tokens;
+            }
+            tokens.add(matched);
+        }
+        tokens.add("EOF $");
+        return tokens;
+    }
+
+    private static List<String> scannedTokens(String program) {
+        Lexer lexer = new Lexer(new StringReader(program), null);
+        List<String> tokens = new ArrayList<>();
+        Token token;
+        do {
+            try {
+                token = lexer.nextToken();
+            } catch (RuntimeException e) {
+                tokens.add(e.getMessage().replace("Unrecognized token at position:", "error at"));
+                return tokens;
+            }
+            tokens.add(token.getType() + " " + token.getValue());
+        } while (token.getType() != Token.TokenType.EOF);
+        return tokens;
+    }
+
+    @Test
+    void scannerMatchesTheRegexLoop() throws Exception {
+        for (String file : FILES) {
+            String program = new String(Files.readAllBytes(Paths.get(file)));
+            assertEquals(regexTokens(program), scannedTokens(program), file);
+        }
+        for (String snippet : SNIPPETS) {
+            assertEquals(regexTokens(snippet), scannedTokens(snippet), snippet);
+        }
+        for (long seed = 1; seed <= 5; seed++) {
+            ProgramGenerator generator = new ProgramGenerator(seed);
+            generator.setSize(2_000);
+            String program = generator.generate();
+            assertEquals(regexTokens(program), scannedTokens(program), "seed " + seed);
+        }
+    }
+
+    @Test
+    void repeatedLexemesShareOneString() {
+        List<Token> tokens = new Lexer(new StringReader("V_x = add(V_x, 12); V_x = 12"), null).getTokens();
+        assertSame(tokens.get(0).getValue(), tokens.get(4).getValue());
+        assertSame(tokens.get(0).getValue(), tokens.get(9).getValue());
+        assertSame(tokens.get(6).getValue(), tokens.get(11).getValue());
+        assertSame(tokens.get(2).getValue(), new Lexer(new StringReader("add"), null).getTokens().get(0).getValue());
+    }
+}
@@ -0,0 +1,96 @@
+package main;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+
+import org.junit.jupiter.api.Test;
+
+import metrics.Counter;
+import metrics.MetricsFormat;
+import output.Artifact;
+import output.InMemoryLayout;
+
+class CompilationTest {
+    private static final File INPUT = new File("txt/simple.txt");
+
+    // Keeps everything in memory but fails to open one artifact
+    private static class FailingLayout extends InMemoryLayout {
+        private final Artifact failing;
+
+        FailingLayout(Artifact failing) {
+            this.failing = failing;
+        }
+
+        @Override
+        public Writer open(String inputName, Artifact artifact) {
+            if (artifact == failing) {
+                return new Writer() {
+                    @Override
+                    public void write(char[] buffer, int offset, int length) throws IOException {
+                        throw new IOException("disk full");
+                    }
+
+                    @Override
+                    public void flush() throws IOException {
+                        throw new IOException("disk full");
+                    }
+
+                    @Override
+                    public void close() {
+                    }
+                };
+            }
+            return super.open(inputName, artifact);
+        }
+    }
+
+    @Test
+    void succeedsWithAndWithoutMetrics() {
+        for (MetricsFormat format : new MetricsFormat[] { null, MetricsFormat.JSON }) {
+            InMemoryLayout layout = new InMemoryLayout();
+            Compilation compilation = new Compilation(INPUT, layout, false, false, format);
+            compilation.run();
+            assertTrue(compilation.isSucceeded(), compilation.getError());
+            assertNotNull(layout.getOutput(INPUT.getName(), Artifact.INTERMEDIATE));
+            assertNotNull(layout.getOutput(INPUT.getName(), Artifact.PARSE_TREE));
+        }
+    }
+
+    @Test
+    void countsTokensWhenMetricsAreOn() {
+        Compilation compilation = new Compilation(INPUT, new InMemoryLayout(), false, false, MetricsFormat.CSV);
+        compilation.run();
+        assertTrue(compilation.getMetrics().get(Counter.TOKENS) > 0);
+    }
+
+    @Test
+    void failedIntermediateCodeWriteFailsTheFile() {
+        Compilation compilation = new Compilation(INPUT, new FailingLayout(Artifact.INTERMEDIATE), false, false, null);
+        compilation.run();
+        assertFalse(compilation.isSucceeded());
+        assertTrue(compilation.getError().contains("intermediate code"), compilation.getError());
+    }
+
+    @Test
+    void failedParseTreeWriteFailsTheFile() {
+        Compilation compilation = new Compilation(INPUT, new FailingLayout(Artifact.PARSE_TREE), false, false, null);
+        compilation.run();
+        assertFalse(compilation.isSucceeded());
+        assertTrue(compilation.getError().contains("parse tree"), compilation.getError());
+    }
+
+    @Test
+    void syntaxErrorFailsTheFile() {
+        Compilation compilation = new Compilation(new File("txt/instructs.txt"), new InMemoryLayout(), false, false, null);
+        compilation.run();
+        assertFalse(compilation.isSucceeded());
+        assertNotNull(compilation.getError());
+        assertEquals(0, compilation.getMetrics().get(Counter.SYMBOLS));
+    }
+}
@@ -0,0 +1,76 @@
+package main;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import metrics.MetricsFormat;
+import output.InMemoryLayout;
+
+class MainTest {
+
+    @Test
+    void errorInAParallelTaskIsReportedOnItsFile() {
+        InMemoryLayout layout = new InMemoryLayout();
+        List<Compilation> compilations = new ArrayList<>();
+        compilations.add(new Compilation(new File("txt/simple.txt"), layout, false, false, null));
+        compilations.add(new Compilation(new File("txt/global.txt"), layout, false, false, null) {
+            @Override
+            void run() {
+                throw new StackOverflowError();
+            }
+        });
+        compilations.add(new Compilation(new File("txt/basic.txt"), layout, false, false, null));
+
+        Main.runAll(compilations, 3);
+
+        assertTrue(compilations.get(0).isSucceeded(), compilations.get(0).getError());
+        assertFalse(compilations.get(1).isSucceeded());
+        assertEquals("java.lang.StackOverflowError", compilations.get(1).getError());
+        assertTrue(compilations.get(2).isSucceeded(), compilations.get(2).getError());
+    }
+
+    @Test
+    void parallelAndSequentialRunsAgree() {
+        List<Compilation> sequential = new ArrayList<>();
+        List<Compilation> parallel = new ArrayList<>();
+        for (File file : new File("txt").listFiles((dir, name) -> name.endsWith(".txt"))) {
+            sequential.add(new Compilation(file, new InMemoryLayout(), false, false, null));
+            parallel.add(new Compilation(file, new InMemoryLayout(), false, false, null));
+        }
+        Main.runAll(sequential, 1);
+        Main.runAll(parallel, 4);
+        for (int i = 0; i < sequential.size(); i++) {
+            assertEquals(sequential.get(i).isSucceeded(), parallel.get(i).isSucceeded());
+            assertEquals(sequential.get(i).getError(), parallel.get(i).getError());
+        }
+    }
+
+    @Test
+    void threadCountsMustBePositiveNumbersOrAuto() {
+        assertEquals(1, Main.parseThreads(Arrays.asList("--quiet")));
+        assertEquals(4, Main.parseThreads(Arrays.asList("--threads=4")));
+        assertEquals(Runtime.getRuntime().availableProcessors(), Main.parseThreads(Arrays.asList("--threads=auto")));
+        for (String bad : new String[] { "--threads=x", "--threads=0", "--threads=-2", "--threads=", "--threads=99999999999" }) {
+            assertThrows(IllegalArgumentException.class, () -> Main.parseThreads(Arrays.asList(bad)), bad);
+        }
+    }
+
+    @Test
+    void metricsFormatMustBeJsonOrCsv() {
+        assertNull(Main.parseMetricsFormat(Arrays.asList("--quiet")));
+        assertEquals(MetricsFormat.JSON, Main.parseMetricsFormat(Arrays.asList("--metrics=json")));
+        assertEquals(MetricsFormat.CSV, Main.parseMetricsFormat(Arrays.asList("--metrics=CSV")));
+        assertThrows(IllegalArgumentException.class, () -> Main.parseMetricsFormat(Arrays.asList("--metrics=xml")));
+        assertThrows(IllegalArgumentException.class, () -> Main.parseMetricsFormat(Arrays.asList("--metrics=")));
+    }
+}
@@ -0,0 +1,82 @@
+package output;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import org.junit.jupiter.api.Test;
+
+class XmlSinkTest {
+
+    @Test
+    void escapesOnlyMarkup() throws IOException {
+        StringWriter out = new StringWriter();
+        XmlSink sink = new XmlSink(out);
+        sink.appendEscaped("a < b && c > d");
+        sink.appendEscaped("plain");
+        sink.flush();
+        assertEquals("a &lt; b &amp;&amp; c &gt; dplain", out.toString());
+    }
+
+    @Test
+    void escapesAcrossBufferBoundaries() throws IOException {
+        StringWriter out = new StringWriter();
+        StringBuilder expected = new StringBuilder();
+        XmlSink sink = new XmlSink(out);
+        String value = "<" + "y".repeat(9_000) + "&z>";
+        for (int i = 0; i < 3; i++) {
+            sink.appendEscaped(value);
+            sink.append("ab-cd", 1, 4);
+            expected.append("&lt;").append("y".repeat(9_000)).append("&amp;z&gt;").append("b-c");
+        }
+        sink.flush();
+        assertEquals(expected.toString(), out.toString());
+    }
+
+    @Test
+    void writesIntsAcrossBufferBoundaries() throws IOException {
+        StringWriter out = new StringWriter();
+        StringBuilder expected = new StringBuilder();
+        XmlSink sink = new XmlSink(out);
+        for (int i = 0; i < 5_000; i++) {
+            int value = i * 7919 % 100_003;
+            sink.appendInt(value);
+            sink.append(",");
+            expected.append(value).append(',');
+        }
+        sink.appendInt(Integer.MAX_VALUE);
+        expected.append(Integer.MAX_VALUE);
+        sink.flush();
+        assertEquals(expected.toString(), out.toString());
+    }
+
+    @Test
+    void writesTextLongerThanTheBuffer() throws IOException {
+        StringWriter out = new StringWriter();
+        String text = "x".repeat(20_000);
+        XmlSink sink = new XmlSink(out);
+        sink.append("<");
+        sink.append(text);
+        sink.append(">");
+        sink.flush();
+        assertEquals("<" + text + ">", out.toString());
+    }
+
+    @Test
+    void closeFlushesAndClosesTheWriter() throws IOException {
+        boolean[] closed = new boolean[1];
+        StringWriter out = new StringWriter() {
+            @Override
+            public void close() {
+                closed[0] = true;
+            }
+        };
+        XmlSink sink = new XmlSink(out);
+        sink.append("<A/>");
+        sink.close();
+        assertEquals("<A/>", out.toString());
+        assertTrue(closed[0]);
+    }
+}
@@ -0,0 +1,162 @@
+package parser;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import lexer.Lexer;
+import lexer.Token;
+import output.DiscardLayout;
+import semantic.SemanticAnalyzer;
+import semantic.TableEntry;
+
+class CompactParseTreeTest {
+    private static final String[] FILES = {
+            "txt/RecursiveCalls.txt", "txt/allTest.txt", "txt/basic.txt", "txt/branching.txt",
+            "txt/global.txt", "txt/printAssign.txt", "txt/simple.txt",
+    };
+
+    private static Parser parse(Lexer lexer, boolean compact) throws IOException {
+        Parser parser = new Parser();
+        parser.setOutputLayout(new DiscardLayout(), "test");
+        if (compact) {
+            parser.useCompactTree();
+        }
+        parser.parseTokens(lexer);
+        assertTrue(parser.isAccepted());
+        return parser;
+    }
+
+    private static List<String> programs() {
+        List<String> programs = new ArrayList<>();
+        for (long seed = 1; seed <= 5; seed++) {
+            ProgramGenerator generator = new ProgramGenerator(seed);
+            generator.setSize(2_000);
+            programs.add(generator.generate());
+        }
+        return programs;
+    }
+
+    private static String xml(ParseTreeView tree, boolean compact) throws IOException {
+        StringWriter out = new StringWriter();
+        new ParseTreeXmlWriter(out, compact).write(tree);
+        return out.toString();
+    }
+
+    private static ParseTree binaryRoundTrip(ParseTreeView tree) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new ParseTreeBinaryWriter(out).write(tree);
+        return new ParseTreeBinaryReader(ByteBuffer.wrap(out.toByteArray())).read();
+    }
+
+    private static void assertSameTrees(ParseTree objects, CompactParseTree compact, String name) throws IOException {
+        String expected = xml(objects, false);
+        assertEquals(expected, xml(compact, false), name);
+        assertEquals(xml(objects, true), xml(compact, true), name);
+        assertEquals(expected, xml(binaryRoundTrip(objects), false), name);
+        assertEquals(expected, xml(binaryRoundTrip(compact), false), name);
+        assertEquals(expected, xml(compact.toParseTree(), false), name);
+        assertEquals(expected, xml(CompactParseTree.from(objects), false), name);
+    }
+
+    @Test
+    void compactBinaryAndObjectTreesWriteTheSameXml() throws IOException {
+        for (String file : FILES) {
+            ParseTree objects = parse(new Lexer(file), false).getParseTree();
+            CompactParseTree compact = parse(new Lexer(file), true).getCompactParseTree();
+            assertSameTrees(objects, compact, file);
+        }
+        for (String program : programs()) {
+            ParseTree objects = parse(new Lexer(new StringReader(program), null), false).getParseTree();
+            CompactParseTree compact = parse(new Lexer(new StringReader(program), null), true).getCompactParseTree();
+            assertSameTrees(objects, compact, "generated program");
+        }
+    }
+
+    @Test
+    void analyzerGivesTheSameSymbolTableOnBothTrees() throws IOException {
+        List<String> sources = programs();
+        for (String program : sources) {
+            SemanticAnalyzer objects = new SemanticAnalyzer(parse(new Lexer(new StringReader(program), null), false).getTree());
+            SemanticAnalyzer compact = new SemanticAnalyzer(parse(new Lexer(new StringReader(program), null), true).getTree());
+            objects.analyze();
+            compact.analyze();
+            assertEquals(describe(objects.getSymbolTable()), describe(compact.getSymbolTable()));
+        }
+    }
+
+    private static List<String> describe(List<TableEntry> table) {
+        List<String> entries = new ArrayList<>();
+        for (TableEntry entry : table) {
+            entries.add(entry.getName() + " " + entry.getType() + " " + entry.getScopeId() + " "
+                    + entry.getInternalName() + " " + entry.getParentScopeId() + " " + entry.isFunction());
+        }
+        return entries;
+    }
+
+    @Test
+    void getParseTreeConvertsTheCompactTree() throws IOException {
+        Parser parser = parse(new Lexer("txt/branching.txt"), true);
+        ParseTree converted = parser.getParseTree();
+        assertEquals(parser.getCompactParseTree().getNodeCount(), converted.getNodeCount());
+        assertEquals(xml(parser.getCompactParseTree(), false), xml(converted, false));
+    }
+
+    @Test
+    void setChildrenDetachesReplacedChildren() {
+        CompactParseTree tree = new CompactParseTree();
+        int root = tree.addRoot("PROG'");
+        int a = tree.addInner("PROG");
+        int b = tree.addLeaf(new Token(Token.TokenType.MAIN, "main"));
+        int c = tree.addLeaf(new Token(Token.TokenType.MAIN, "main"));
+        tree.setChildren(root, new int[] { a, b }, 2);
+        tree.setChildren(root, new int[] { c, a }, 2);
+
+        assertEquals(0, tree.getParentId(b));
+        assertEquals(root, tree.getParentId(a));
+        assertEquals(root, tree.getParentId(c));
+        assertEquals(2, tree.getChildCount(root));
+        assertEquals(c, tree.getChildId(root, 0));
+        assertEquals(a, tree.getChildId(root, 1));
+
+        CompactParseTree.Cursor cursor = tree.cursor();
+        assertTrue(cursor.toFirstChild());
+        assertEquals(c, cursor.getUnid());
+        assertTrue(cursor.toNextSibling());
+        assertEquals(a, cursor.getUnid());
+        assertFalse(cursor.toNextSibling());
+        cursor.moveTo(b);
+        assertFalse(cursor.toParent());
+        assertFalse(cursor.toNextSibling());
+    }
+
+    @Test
+    void cursorVisitsEveryNode() throws IOException {
+        CompactParseTree tree = parse(new Lexer("txt/allTest.txt"), true).getCompactParseTree();
+        CompactParseTree.Cursor cursor = tree.cursor();
+        int visited = 1;
+        while (true) {
+            if (cursor.toFirstChild()) {
+                visited++;
+                continue;
+            }
+            while (!cursor.toNextSibling()) {
+                if (!cursor.toParent()) {
+                    assertEquals(tree.getNodeCount(), visited);
+                    return;
+                }
+            }
+            visited++;
+        }
+    }
+}
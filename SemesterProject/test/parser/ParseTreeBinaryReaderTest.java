@@ -0,0 +1,247 @@
+package parser;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+import lexer.Lexer;
+import output.DiscardLayout;
+
+class ParseTreeBinaryReaderTest {
+
+    static ParseTree parse(String path) throws IOException {
+        Parser parser = new Parser();
+        parser.setOutputLayout(new DiscardLayout(), path);
+        parser.parseTokens(new Lexer(path));
+        assertTrue(parser.isAccepted(), path + " should parse");
+        return parser.getParseTree();
+    }
+
+    static String xml(ParseTree tree) throws IOException {
+        StringWriter out = new StringWriter();
+        tree.writeToXML(out);
+        return out.toString();
+    }
+
+    private static byte[] binary(ParseTree tree) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        tree.writeToBinary(out);
+        return out.toByteArray();
+    }
+
+    private static ParseTree read(byte[] bytes) throws IOException {
+        return new ParseTreeBinaryReader(ByteBuffer.wrap(bytes)).read();
+    }
+
+    @Test
+    void roundTripGivesTheSameXml() throws IOException {
+        for (String path : new String[] { "txt/simple.txt", "txt/branching.txt", "txt/RecursiveCalls.txt" }) {
+            ParseTree tree = parse(path);
+            assertEquals(xml(tree), xml(read(binary(tree))), path);
+        }
+    }
+
+    @Test
+    void everyTruncationIsAnIOException() throws IOException {
+        byte[] bytes = binary(parse("txt/simple.txt"));
+        for (int length = 0; length < bytes.length; length++) {
+            byte[] prefix = Arrays.copyOf(bytes, length);
+            assertThrows(IOException.class, () -> read(prefix), "prefix of " + length + " bytes");
+        }
+    }
+
+    @Test
+    void trailingBytesAreRejected() throws IOException {
+        byte[] bytes = binary(parse("txt/simple.txt"));
+        assertThrows(IOException.class, () -> read(Arrays.copyOf(bytes, bytes.length + 1)));
+    }
+
+    @Test
+    void badMagicAndVersionAreRejected() {
+        assertThrows(IOException.class, () -> read(new Bytes().raw('X', 'Y', 'N', 'T', 1).toArray()));
+        assertThrows(IOException.class, () -> read(new Bytes().raw('S', 'Y', 'N', 'T', 2).toArray()));
+    }
+
+    @Test
+    void countsLargerThanTheFileAreRejected() {
+        // 0x7FFFFFFF strings, which must not be allocated
+        byte[] strings = new Bytes().header().varint(Integer.MAX_VALUE).toArray();
+        assertThrows(IOException.class, () -> read(strings));
+
+        byte[] stringLength = new Bytes().header().varint(1).varint(1_000_000).toArray();
+        assertThrows(IOException.class, () -> read(stringLength));
+
+        byte[] nodes = new Bytes().header().strings("PROG'").varint(1_000_000).toArray();
+        assertThrows(IOException.class, () -> read(nodes));
+
+        byte[] children = new Bytes().header().strings("PROG'").varint(1).node(ParseTreeBinaryWriter.ROOT, 1, 0)
+                .varint(1_000_000).toArray();
+        assertThrows(IOException.class, () -> read(children));
+    }
+
+    @Test
+    void overlongAndOverflowingVarintsAreRejected() {
+        // Six bytes
+        byte[] overlong = new Bytes().header().raw(0x80, 0x80, 0x80, 0x80, 0x80, 0x00).toArray();
+        assertThrows(IOException.class, () -> read(overlong));
+
+        // Five bytes that would come out negative as a count
+        byte[] negative = new Bytes().header().raw(0xFF, 0xFF, 0xFF, 0xFF, 0x0F).toArray();
+        assertThrows(IOException.class, () -> read(negative));
+
+        // Five bytes with bits beyond 32
+        byte[] wide = new Bytes().header().raw(0x80, 0x80, 0x80, 0x80, 0x70).toArray();
+        assertThrows(IOException.class, () -> read(wide));
+    }
+
+    @Test
+    void indexesOutsideTheirTablesAreRejected() {
+        byte[] badSymbol = new Bytes().header().strings("PROG'").varint(1).node(ParseTreeBinaryWriter.ROOT, 1, 5)
+                .varint(0).toArray();
+        assertThrows(IOException.class, () -> read(badSymbol));
+
+        byte[] badValue = new Bytes().header().strings("PROG'").varint(2).node(ParseTreeBinaryWriter.ROOT, 1, 0)
+                .varint(1).varint(2).node(ParseTreeBinaryWriter.LEAF, 2, 1).varint(9).toArray();
+        assertThrows(IOException.class, () -> read(badValue));
+
+        byte[] badType = new Bytes().header().strings("PROG'").varint(2).node(ParseTreeBinaryWriter.ROOT, 1, 0)
+                .varint(1).varint(2).node(ParseTreeBinaryWriter.LEAF, 2, 1000).varint(0).toArray();
+        assertThrows(IOException.class, () -> read(badType));
+
+        byte[] badKind = new Bytes().header().strings("PROG'").varint(1).node(7, 1, 0).toArray();
+        assertThrows(IOException.class, () -> read(badKind));
+    }
+
+    @Test
+    void unidsMustBeUniqueAndWithinTheNodeCount() {
+        // A hostile unid must not make the tree grow an index of that size
+        byte[] huge = new Bytes().header().strings("PROG'").varint(1).node(ParseTreeBinaryWriter.ROOT, 50_000_000, 0)
+                .varint(0).toArray();
+        assertThrows(IOException.class, () -> read(huge));
+
+        byte[] zero = new Bytes().header().strings("PROG'").varint(1).node(ParseTreeBinaryWriter.ROOT, 0, 0)
+                .varint(0).toArray();
+        assertThrows(IOException.class, () -> read(zero));
+
+        byte[] repeated = new Bytes().header().strings("PROG'", "PROG").varint(2)
+                .node(ParseTreeBinaryWriter.ROOT, 1, 0).varint(0)
+                .node(ParseTreeBinaryWriter.INNER, 1, 1).varint(0).toArray();
+        assertThrows(IOException.class, () -> read(repeated));
+    }
+
+    @Test
+    void childrenMustExistAndHaveOneParent() {
+        byte[] unknown = new Bytes().header().strings("PROG'").varint(1).node(ParseTreeBinaryWriter.ROOT, 1, 0)
+                .varint(1).varint(2).toArray();
+        assertThrows(IOException.class, () -> read(unknown));
+
+        byte[] self = new Bytes().header().strings("PROG'").varint(1).node(ParseTreeBinaryWriter.ROOT, 1, 0)
+                .varint(1).varint(1).toArray();
+        assertThrows(IOException.class, () -> read(self));
+
+        byte[] shared = new Bytes().header().strings("PROG'", "PROG").varint(3)
+                .node(ParseTreeBinaryWriter.ROOT, 1, 0).varint(2).varint(2).varint(3)
+                .node(ParseTreeBinaryWriter.INNER, 2, 1).varint(1).varint(3)
+                .node(ParseTreeBinaryWriter.INNER, 3, 1).varint(0).toArray();
+        assertThrows(IOException.class, () -> read(shared));
+
+        byte[] noRoot = new Bytes().header().strings("PROG").varint(1).node(ParseTreeBinaryWriter.INNER, 1, 0)
+                .varint(0).toArray();
+        assertThrows(IOException.class, () -> read(noRoot));
+    }
+
+    @Test
+    void cyclesAwayFromTheRootAreRejected() {
+        // 2 and 3 are each other's only parent, so neither hangs off the root
+        byte[] cycle = new Bytes().header().strings("PROG'", "PROG").varint(3)
+                .node(ParseTreeBinaryWriter.ROOT, 1, 0).varint(0)
+                .node(ParseTreeBinaryWriter.INNER, 2, 1).varint(1).varint(3)
+                .node(ParseTreeBinaryWriter.INNER, 3, 1).varint(1).varint(2).toArray();
+        assertThrows(IOException.class, () -> read(cycle));
+    }
+
+    @Test
+    void orphansAreRejected() {
+        byte[] orphan = new Bytes().header().strings("PROG'", "PROG").varint(3)
+                .node(ParseTreeBinaryWriter.ROOT, 1, 0).varint(1).varint(2)
+                .node(ParseTreeBinaryWriter.INNER, 2, 1).varint(0)
+                .node(ParseTreeBinaryWriter.INNER, 3, 1).varint(0).toArray();
+        assertThrows(IOException.class, () -> read(orphan));
+    }
+
+    @Test
+    void unknownSymbolsAreRejectedWithoutBeingInterned() {
+        String symbol = "NOT_IN_THE_GRAMMAR";
+        byte[] bytes = new Bytes().header().strings("PROG'", symbol).varint(2)
+                .node(ParseTreeBinaryWriter.ROOT, 1, 0).varint(1).varint(2)
+                .node(ParseTreeBinaryWriter.INNER, 2, 1).varint(0).toArray();
+        assertThrows(IOException.class, () -> read(bytes));
+        assertEquals(-1, GrammarSymbols.lookup(symbol));
+    }
+
+    @Test
+    void handWrittenTreeIsRead() throws IOException {
+        byte[] bytes = new Bytes().header().strings("PROG'", "PROG", "main").varint(3)
+                .node(ParseTreeBinaryWriter.ROOT, 1, 0).varint(1).varint(2)
+                .node(ParseTreeBinaryWriter.INNER, 2, 1).varint(1).varint(3)
+                .node(ParseTreeBinaryWriter.LEAF, 3, 0).varint(2).toArray();
+        ParseTree tree = read(bytes);
+        assertEquals(3, tree.getNodeCount());
+        assertEquals("PROG", ((InnerNode) tree.getNode(2)).getNonterminal());
+        assertEquals(2, tree.getNode(3).getParentId());
+    }
+
+    // Builds binary parse tree input by hand
+    private static class Bytes {
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        Bytes raw(int... values) {
+            for (int value : values) {
+                out.write(value);
+            }
+            return this;
+        }
+
+        Bytes header() {
+            out.writeBytes(ParseTreeBinaryWriter.MAGIC);
+            return raw(ParseTreeBinaryWriter.VERSION);
+        }
+
+        Bytes varint(int value) {
+            while ((value & ~0x7F) != 0) {
+                out.write((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            out.write(value);
+            return this;
+        }
+
+        Bytes strings(String... strings) {
+            varint(strings.length);
+            for (String string : strings) {
+                byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+                varint(bytes.length);
+                out.writeBytes(bytes);
+            }
+            return this;
+        }
+
+        // Kind, unid and the symbol index or token type that follows them
+        Bytes node(int kind, int unid, int symbolOrType) {
+            return varint(kind).varint(unid).varint(symbolOrType);
+        }
+
+        byte[] toArray() {
+            return out.toByteArray();
+        }
+    }
+}
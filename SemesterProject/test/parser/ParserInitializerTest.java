@@ -0,0 +1,70 @@
+package parser;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class ParserInitializerTest {
+
+    @Test
+    void generatedTableMatchesTheCsv() {
+        ParsingTable generated = ParserInitializer.getParsingTable();
+        ParsingTable csv = ParserInitializer.initializeParsingTable();
+
+        assertFalse(csv.getActionTable().isEmpty());
+        assertEquals(csv.getActionTable(), generated.getActionTable());
+        assertEquals(csv.getGotoTable(), generated.getGotoTable());
+
+        // The packed lookups the parser uses agree with the CSV's strings
+        for (Map.Entry<Integer, Map<String, String>> row : csv.getActionTable().entrySet()) {
+            for (Map.Entry<String, String> cell : row.getValue().entrySet()) {
+                int action = generated.action(row.getKey(), generated.getTerminalId(cell.getKey()));
+                assertEquals(cell.getValue(), ParsingTable.decodeAction(action), "state " + row.getKey() + ", " + cell.getKey());
+            }
+        }
+        for (Map.Entry<Integer, Map<String, Integer>> row : csv.getGotoTable().entrySet()) {
+            for (Map.Entry<String, Integer> cell : row.getValue().entrySet()) {
+                int next = generated.gotoState(row.getKey(), generated.getNonterminalId(cell.getKey()));
+                assertEquals(cell.getValue().intValue(), next, "state " + row.getKey() + ", " + cell.getKey());
+            }
+        }
+    }
+
+    @Test
+    void emptyCellsAreErrors() {
+        ParsingTable table = ParserInitializer.getParsingTable();
+        assertEquals(ParsingTable.ERROR, ParsingTable.actionKind(table.action(0, table.getTerminalId("$"))));
+        assertEquals(ParsingTable.ERROR, ParsingTable.actionKind(table.action(0, -1)));
+        assertEquals(-1, table.gotoState(0, -1));
+    }
+
+    // The parser pops as many symbols as its own rules say, so they must agree with grammar.txt
+    @Test
+    void rulesMatchGrammarTxt() throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (String line : Files.readAllLines(Paths.get("grammar.txt"))) {
+            if (!line.isBlank()) {
+                lines.add(line);
+            }
+        }
+        List<GrammarRule> rules = ParserInitializer.initializeGrammarRules();
+        assertEquals(lines.size(), rules.size());
+        for (int i = 0; i < rules.size(); i++) {
+            String[] sides = lines.get(i).split("->", 2);
+            long rhsLength = Arrays.stream(sides[1].trim().split("\\s+"))
+                    .filter(symbol -> !symbol.isEmpty() && !symbol.equals("''"))
+                    .count();
+            assertEquals(sides[0].trim(), rules.get(i).getLhs(), "rule " + i);
+            assertEquals(rhsLength, rules.get(i).getRhs().size(), "rule " + i);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package parser;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import lexer.Lexer;
+import lexer.Token;
+import lexer.TokenScanner;
+import lexer.XmlTokenSource;
+import output.DiscardLayout;
+
+class ParserTest {
+    private static final String[] FILES = {
+            "txt/RecursiveCalls.txt", "txt/allTest.txt", "txt/basic.txt", "txt/branching.txt",
+            "txt/global.txt", "txt/printAssign.txt", "txt/simple.txt",
+    };
+
+    private static String parse(List<Token> tokens) throws IOException {
+        Parser parser = new Parser();
+        parser.setOutputLayout(new DiscardLayout(), "test");
+        parser.setTokens(tokens);
+        parser.parseTokens();
+        assertTrue(parser.isAccepted());
+        StringWriter out = new StringWriter();
+        new ParseTreeXmlWriter(out, false).write(parser.getTree());
+        return out.toString();
+    }
+
+    @Test
+    void keywordsCarryTheirLexemeId() {
+        TokenScanner scanner = TokenScanner.getInstance();
+        for (String word : new String[] { "main", "begin", "add", "or", "(", ";", "=", "input" }) {
+            Token token = scanner.scan(word, 0);
+            assertEquals(word, scanner.getLexeme(token.getLexemeId()));
+            assertEquals(token.getLexemeId(), scanner.lexemeId(word));
+        }
+        assertEquals(-1, scanner.scan("V_x", 0).getLexemeId());
+        assertEquals(-1, scanner.lexemeId("V_x"));
+        assertEquals(-1, scanner.lexemeId("mai"));
+    }
+
+    // Lexed tokens find their column by lexeme id, tokens made without one by their value
+    @Test
+    void tokensWithAndWithoutLexemeIdsParseTheSame() throws Exception {
+        for (String file : FILES) {
+            List<Token> lexed = new Lexer(file).getTokens();
+            List<Token> plain = new ArrayList<>();
+            for (Token token : lexed) {
+                plain.add(new Token(token.getType(), token.getValue()));
+            }
+
+            StringWriter xml = new StringWriter();
+            new Lexer(file, xml).getTokens();
+            List<Token> read = new ArrayList<>();
+            try (XmlTokenSource source = new XmlTokenSource(new StringReader(xml.toString()))) {
+                Token token;
+                while ((token = source.nextToken()) != null) {
+                    read.add(token);
+                }
+            }
+            for (int i = 0; i < lexed.size(); i++) {
+                assertEquals(lexed.get(i).getLexemeId(), read.get(i).getLexemeId(), file + " token " + i);
+            }
+
+            String expected = parse(plain);
+            assertEquals(expected, parse(lexed), file);
+            assertEquals(expected, parse(read), file);
+        }
+    }
+}
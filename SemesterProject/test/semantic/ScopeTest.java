@@ -0,0 +1,139 @@
+package semantic;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+class ScopeTest {
+
+    private static TableEntry entry(String name, int scopeId) {
+        return new TableEntry(name, "num", scopeId, "v" + scopeId, name, false, 0, false);
+    }
+
+    @Test
+    void resolvesOutwardsBeforeAndAfterFreezing() {
+        Scope global = new Scope("global", null, 0);
+        Scope function = new Scope("F_f", global, 1);
+        Scope nested = new Scope("F_g", function, 2);
+        TableEntry outer = entry("V_x", 0);
+        TableEntry inner = entry("V_x", 1);
+        global.addVariable(outer);
+        assertSame(outer, nested.resolve("V_x"));
+
+        // Not cached before freezing, so a later declaration is seen
+        function.addVariable(inner);
+        assertSame(inner, nested.resolve("V_x"));
+        assertSame(outer, global.resolve("V_x"));
+
+        global.freeze();
+        assertSame(inner, nested.resolve("V_x"));
+        assertSame(inner, nested.resolve("V_x"));
+        assertNull(nested.resolve("V_missing"));
+        assertNull(nested.resolve("V_missing"));
+    }
+
+    @Test
+    void frozenTreeCannotChange() {
+        Scope global = new Scope("global", null, 0);
+        Scope function = new Scope("F_f", global, 1);
+        function.freeze(); // freezes the whole tree from any scope
+        assertTrue(global.isFrozen());
+        assertThrows(IllegalStateException.class, () -> global.addVariable(entry("V_x", 0)));
+        assertThrows(IllegalStateException.class, () -> new Scope("F_g", function, 2));
+        assertThrows(UnsupportedOperationException.class, () -> global.getChildren().clear());
+    }
+
+    @Test
+    void ancestryAgreesBeforeAndAfterFreezing() {
+        Scope global = new Scope("global", null, 0);
+        Scope a = new Scope("a", global, 1);
+        Scope b = new Scope("b", global, 2);
+        Scope a1 = new Scope("a1", a, 3);
+        Scope a2 = new Scope("a2", a1, 4);
+        Scope[] scopes = { global, a, b, a1, a2 };
+
+        boolean[][] before = new boolean[scopes.length][scopes.length];
+        for (int i = 0; i < scopes.length; i++) {
+            for (int j = 0; j < scopes.length; j++) {
+                before[i][j] = scopes[i].isDescendantOf(scopes[j]);
+            }
+        }
+        global.freeze();
+        for (int i = 0; i < scopes.length; i++) {
+            for (int j = 0; j < scopes.length; j++) {
+                assertEquals(before[i][j], scopes[i].isDescendantOf(scopes[j]), scopes[i].getName() + " in " + scopes[j].getName());
+            }
+        }
+        assertTrue(a2.isDescendantOf(global));
+        assertTrue(a2.isDescendantOf(a));
+        assertFalse(a2.isDescendantOf(b));
+        assertFalse(a.isDescendantOf(a));
+        assertFalse(global.isDescendantOf(null));
+    }
+
+    @Test
+    void scopesFromAnotherTreeCannotBeAdded() {
+        Scope first = new Scope("global", null, 0);
+        Scope second = new Scope("global", null, 0);
+        Scope child = new Scope("F_f", second, 1);
+        assertThrows(IllegalArgumentException.class, () -> first.addChild(child));
+        assertThrows(IllegalArgumentException.class, () -> first.addChild(second));
+        assertFalse(child.isDescendantOf(first));
+    }
+
+    @Test
+    void frozenTreeResolvesConsistentlyFromManyThreads() throws Exception {
+        Scope global = new Scope("global", null, 0);
+        List<Scope> functions = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            global.addVariable(entry("V_g" + i, 0));
+            Scope function = new Scope("F_" + i, global, i + 1);
+            function.addVariable(entry("V_g" + (i % 5), i + 1)); // shadows a global
+            functions.add(function);
+        }
+        global.freeze();
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                results.add(executor.submit(() -> {
+                    for (int round = 0; round < 200; round++) {
+                        for (int i = 0; i < functions.size(); i++) {
+                            for (int g = 0; g < 50; g++) {
+                                TableEntry entry = functions.get(i).resolve("V_g" + g);
+                                int expectedScope = g == i % 5 ? i + 1 : 0;
+                                if (entry == null || entry.getScopeId() != expectedScope) {
+                                    return false;
+                                }
+                            }
+                        }
+                    }
+                    return true;
+                }));
+            }
+            for (Future<Boolean> result : results) {
+                assertTrue(result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void analyzerFreezesItsScopes() throws Exception {
+        SemanticAnalyzer analyzer = SemanticAnalyzerTest.analyze("txt/RecursiveCalls.txt");
+        assertTrue(analyzer.getGlobalScope().isFrozen());
+    }
+}
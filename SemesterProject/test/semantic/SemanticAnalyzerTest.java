@@ -0,0 +1,100 @@
+package semantic;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.StringReader;
+
+import org.junit.jupiter.api.Test;
+
+import lexer.Lexer;
+import output.DiscardLayout;
+import parser.Parser;
+
+class SemanticAnalyzerTest {
+
+    // F_a declares two sibling subfunctions, F_b and F_c, after a top-level F_z
+    private static final String SIBLINGS = String.join("\n",
+            "main num V_g, begin F_a(1, 2, 3); end",
+            "num F_z(V_p, V_q, V_r) { num V_zx, num V_zy, num V_zz, begin return V_p; end } end",
+            "num F_a(V_p, V_q, V_r) { num V_ax, num V_ay, num V_az, begin return V_p; end }",
+            "  num F_b(V_p, V_q, V_r) { num V_bx, num V_by, num V_bz, begin return V_bx; end } end",
+            "  num F_c(V_p, V_q, V_r) { num V_cx, num V_cy, num V_cz, begin return V_cx; end } end",
+            "end");
+
+    static SemanticAnalyzer analyze(String path) throws Exception {
+        return analyze(new Lexer(path), path);
+    }
+
+    private static SemanticAnalyzer analyze(Lexer lexer, String path) throws Exception {
+        Parser parser = new Parser();
+        parser.setOutputLayout(new DiscardLayout(), path);
+        parser.parseTokens(lexer);
+        assertTrue(parser.isAccepted(), path + " should parse");
+        SemanticAnalyzer analyzer = new SemanticAnalyzer(parser.getParseTree());
+        analyzer.analyze();
+        return analyzer;
+    }
+
+    @Test
+    void functionCalledFromMainResolvesInTheGlobalScope() throws Exception {
+        SemanticAnalyzer analyzer = analyze("txt/RecursiveCalls.txt");
+
+        TableEntry factorial = analyzer.resolve(0, "F_factorial");
+        assertNotNull(factorial);
+        assertEquals(0, factorial.getParentScopeId());
+        assertEquals(factorial, analyzer.lookup(0, "F_factorial"));
+    }
+
+    @Test
+    void functionStillResolvesInsideItsOwnScope() throws Exception {
+        SemanticAnalyzer analyzer = analyze("txt/RecursiveCalls.txt");
+
+        TableEntry factorial = analyzer.resolve(0, "F_factorial");
+        assertEquals(factorial, analyzer.resolve(factorial.getScopeId(), "F_factorial"));
+        assertNotNull(analyzer.resolve(factorial.getScopeId(), "V_result"));
+    }
+
+    @Test
+    void mainIsRegisteredOnce() throws Exception {
+        SemanticAnalyzer analyzer = analyze("txt/RecursiveCalls.txt");
+
+        long mains = analyzer.getGlobalScope().getVariables().stream()
+                .filter(entry -> entry.getName().equals("main"))
+                .count();
+        assertEquals(1, mains);
+    }
+
+    @Test
+    void siblingSubfunctionsShareTheirEnclosingFunction() throws Exception {
+        SemanticAnalyzer analyzer = analyze(new Lexer(new StringReader(SIBLINGS), null), "siblings");
+
+        TableEntry a = analyzer.resolve(0, "F_a");
+        assertNotNull(a);
+        assertNull(analyzer.lookup(0, "F_b")); // subfunctions are not visible globally
+        TableEntry b = analyzer.lookup(a.getScopeId(), "F_b");
+        TableEntry c = analyzer.lookup(a.getScopeId(), "F_c");
+        assertNotNull(b);
+        assertNotNull(c);
+        assertEquals(a.getScopeId(), b.getParentScopeId());
+        assertEquals(a.getScopeId(), c.getParentScopeId());
+
+        Scope aScope = analyzer.getScope(a.getScopeId());
+        Scope bScope = analyzer.getScope(b.getScopeId());
+        Scope cScope = analyzer.getScope(c.getScopeId());
+        assertSame(aScope, bScope.getParent());
+        assertSame(aScope, cScope.getParent());
+        assertSame(analyzer.getGlobalScope(), analyzer.getScope(analyzer.resolve(0, "F_z").getScopeId()).getParent());
+
+        // Each sibling sees its own locals and F_a's, never the other sibling's
+        assertNull(cScope.resolve("V_bx"));
+        assertNull(bScope.resolve("V_cx"));
+        assertNotNull(cScope.resolve("V_cx"));
+        assertNotNull(cScope.resolve("V_ax"));
+        assertSame(b, cScope.resolve("F_b"));
+        assertSame(c, bScope.resolve("F_c"));
+    }
+}
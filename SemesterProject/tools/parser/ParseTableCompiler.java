@@ -0,0 +1,232 @@
+package parser;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Build step that compiles Actions_GOTOS.csv into the generated ParseTableData class.
+ * The compiler module runs it in generate-sources, so it never ships in the jar:
+ *
+ *   java parser.ParseTableCompiler Actions_GOTOS.csv grammar.txt path/to/parser/ParseTableData.java
+ *
+ * The CSV is checked against grammar.txt first: every ACTION column must be a
+ * terminal, every GOTO column a non-terminal, every reduce must name an existing
+ * rule and every target state must exist. It only uses ParsingTable, which is
+ * compiled with it; ParserInitializerTest checks the parser's rules against grammar.txt.
+ */
+public class ParseTableCompiler {
+    // grammar.txt spells the lexical classes differently from the CSV columns
+    private static final Map<String, String> CLASS_SYMBOLS = Map.of(
+            "vclass", "V", "fclass", "F", "nclass", "N", "tclass", "T");
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3) {
+            throw new IllegalArgumentException("usage: ParseTableCompiler <Actions_GOTOS.csv> <grammar.txt> <ParseTableData.java>");
+        }
+        String csvFile = args[0];
+        String grammarFile = args[1];
+        String outputFile = args[2];
+
+        List<String[]> grammar = readGrammar(grammarFile);
+        List<String[]> entries = readCsv(csvFile);
+        List<String> errors = validate(grammar, entries);
+        if (!errors.isEmpty()) {
+            for (String error : errors) {
+                System.err.println(csvFile + ": " + error);
+            }
+            throw new IllegalStateException(errors.size() + " problem(s) in " + csvFile);
+        }
+
+        writeTable(entries, outputFile);
+        System.out.println("Parse table written to " + outputFile);
+    }
+
+    // Each rule as {lhs, rhs...}, with '' dropped and lexical classes renamed to their CSV columns
+    private static List<String[]> readGrammar(String grammarFile) throws IOException {
+        List<String[]> rules = new ArrayList<>();
+        try (BufferedReader br = new BufferedReader(new FileReader(grammarFile))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                String[] sides = line.split("->", 2);
+                List<String> rule = new ArrayList<>();
+                rule.add(sides[0].trim());
+                for (String symbol : sides[1].trim().split("\\s+")) {
+                    if (!symbol.isEmpty() && !symbol.equals("''")) {
+                        rule.add(CLASS_SYMBOLS.getOrDefault(symbol, symbol));
+                    }
+                }
+                rules.add(rule.toArray(new String[0]));
+            }
+        }
+        return rules;
+    }
+
+    // Each CSV row as {state, symbol, type, value}
+    private static List<String[]> readCsv(String csvFile) throws IOException {
+        List<String[]> entries = new ArrayList<>();
+        try (BufferedReader br = new BufferedReader(new FileReader(csvFile))) {
+            br.readLine(); // Skip header
+            String line;
+            while ((line = br.readLine()) != null) {
+                if (!line.isBlank()) {
+                    entries.add(ParsingTable.parseCsvLine(line, ";"));
+                }
+            }
+        }
+        return entries;
+    }
+
+    private static List<String> validate(List<String[]> grammar, List<String[]> entries) {
+        List<String> errors = new ArrayList<>();
+
+        Set<String> nonterminals = new HashSet<>();
+        for (String[] rule : grammar) {
+            nonterminals.add(rule[0]);
+        }
+        Set<String> terminals = new HashSet<>();
+        terminals.add("$");
+        for (String[] rule : grammar) {
+            for (int i = 1; i < rule.length; i++) {
+                if (!nonterminals.contains(rule[i])) {
+                    terminals.add(rule[i]);
+                }
+            }
+        }
+
+        int stateCount = 0;
+        for (String[] entry : entries) {
+            if (entry.length != 4) {
+                errors.add("expected 4 columns: " + String.join(";", entry));
+                continue;
+            }
+            try {
+                stateCount = Math.max(stateCount, Integer.parseInt(entry[0]) + 1);
+            } catch (NumberFormatException e) {
+                errors.add("bad state number: " + entry[0]);
+            }
+        }
+        if (!errors.isEmpty()) {
+            return errors;
+        }
+
+        Map<String, String> seen = new HashMap<>();
+        for (String[] entry : entries) {
+            String where = "state " + entry[0] + ", symbol " + entry[1] + ": ";
+            String previous = seen.put(entry[0] + " " + entry[1], entry[3]);
+            if (previous != null && !previous.equals(entry[3])) {
+                errors.add(where + "conflict between " + previous + " and " + entry[3]);
+            }
+
+            if (entry[2].equals("ACTION")) {
+                if (!terminals.contains(entry[1])) {
+                    errors.add(where + "ACTION column is not a terminal of the grammar");
+                }
+                String action = entry[3];
+                try {
+                    int code = ParsingTable.encodeAction(action);
+                    int value = ParsingTable.actionValue(code);
+                    switch (ParsingTable.actionKind(code)) {
+                        case ParsingTable.SHIFT:
+                            if (value >= stateCount) {
+                                errors.add(where + "shift to missing state " + value);
+                            }
+                            break;
+                        case ParsingTable.REDUCE:
+                            if (value >= grammar.size()) {
+                                errors.add(where + "reduce by missing rule " + value);
+                            }
+                            break;
+                        default:
+                            if (!entry[1].equals("$")) {
+                                errors.add(where + "accept on a symbol other than $");
+                            }
+                            break;
+                    }
+                } catch (IllegalArgumentException e) {
+                    errors.add(where + "unknown action " + action);
+                }
+            } else if (entry[2].equals("GOTO")) {
+                if (!nonterminals.contains(entry[1])) {
+                    errors.add(where + "GOTO column is not a non-terminal of the grammar");
+                }
+                try {
+                    if (Integer.parseInt(entry[3]) >= stateCount) {
+                        errors.add(where + "goto to missing state " + entry[3]);
+                    }
+                } catch (NumberFormatException e) {
+                    errors.add(where + "bad goto state " + entry[3]);
+                }
+            } else {
+                errors.add(where + "unknown type " + entry[2]);
+            }
+        }
+        return errors;
+    }
+
+    private static void writeTable(List<String[]> entries, String outputFile) throws IOException {
+        Map<String, Integer> terminals = new LinkedHashMap<>();
+        Map<String, Integer> nonterminals = new LinkedHashMap<>();
+        List<Integer> actions = new ArrayList<>();
+        List<Integer> gotos = new ArrayList<>();
+        for (String[] entry : entries) {
+            int state = Integer.parseInt(entry[0]);
+            if (entry[2].equals("ACTION")) {
+                int terminal = terminals.computeIfAbsent(entry[1], k -> terminals.size());
+                actions.addAll(Arrays.asList(state, terminal, ParsingTable.encodeAction(entry[3])));
+            } else {
+                int nonterminal = nonterminals.computeIfAbsent(entry[1], k -> nonterminals.size());
+                gotos.addAll(Arrays.asList(state, nonterminal, Integer.parseInt(entry[3])));
+            }
+        }
+
+        Files.createDirectories(Paths.get(outputFile).toAbsolutePath().getParent());
+        try (BufferedWriter out = new BufferedWriter(new FileWriter(outputFile))) {
+            out.write("package parser;\n\n");
+            out.write("// Generated by parser.ParseTableCompiler from Actions_GOTOS.csv. Do not edit.\n");
+            out.write("final class ParseTableData {\n");
+            out.write("    static final String[] TERMINALS = " + stringArray(terminals.keySet()) + ";\n\n");
+            out.write("    static final String[] NONTERMINALS = " + stringArray(nonterminals.keySet()) + ";\n\n");
+            out.write("    // state, terminal, packed action (see ParsingTable.encodeAction)\n");
+            out.write("    static final int[] ACTIONS = " + intArray(actions) + ";\n\n");
+            out.write("    // state, non-terminal, next state\n");
+            out.write("    static final int[] GOTOS = " + intArray(gotos) + ";\n\n");
+            out.write("    private ParseTableData() {\n    }\n}\n");
+        }
+    }
+
+    private static String stringArray(Iterable<String> values) {
+        StringBuilder out = new StringBuilder("{");
+        int column = 0;
+        for (String value : values) {
+            out.append(column++ % 10 == 0 ? "\n            " : " ");
+            out.append('"').append(value.replace("\\", "\\\\").replace("\"", "\\\"")).append("\",");
+        }
+        return out.append("\n    }").toString();
+    }
+
+    // Four table entries (three ints each) per line
+    private static String intArray(List<Integer> values) {
+        StringBuilder out = new StringBuilder("{");
+        for (int i = 0; i < values.size(); i++) {
+            out.append(i % 12 == 0 ? "\n            " : " ");
+            out.append(values.get(i)).append(',');
+        }
+        return out.append("\n    }").toString();
+    }
+}